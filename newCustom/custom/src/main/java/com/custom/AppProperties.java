@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.Min;
+
 @ConfigurationProperties(prefix = "gbe")
 @Getter
 @Setter
@@ -12,4 +14,42 @@ import org.springframework.validation.annotation.Validated;
 public class AppProperties {
     private String matchingEngineCommandTopic;
     private String matchingEngineMessageTopic;
+
+    /**
+     * Number of parallel Mongo writers behind each order, trade and account persistence consumer
+     */
+    @Min(1)
+    private int persistenceWriterThreads = 4;
+
+    /**
+     * Number of polled batches a persistence consumer may have written asynchronously but not yet committed
+     */
+    @Min(1)
+    private int persistenceMaxInFlightBatches = 4;
+
+    /**
+     * How long order updates are coalesced in memory before they are written to Mongo. Orders reaching a final
+     * state are written without waiting
+     */
+    @Min(0)
+    private long persistenceOrderFlushWindowMs = 200;
+
+    /**
+     * Upper bound on how long a cached balance may be served without being reloaded from Mongo. Cached balances
+     * are normally kept current by the account topic, the bound only matters if updates are lost
+     */
+    @Min(0)
+    private long accountCacheMaxStalenessMs = 30000;
+
+    /**
+     * Number of users whose balances are cached on each node
+     */
+    @Min(1)
+    private long accountCacheMaxUsers = 100000;
+
+    /**
+     * Number of recent trades kept in memory per product for the trade endpoints
+     */
+    @Min(1)
+    private int recentTradesCapacity = 200;
 }
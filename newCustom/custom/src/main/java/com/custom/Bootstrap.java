@@ -1,7 +1,9 @@
 package com.custom;
 
 import com.custom.marketdata.*;
+import com.custom.marketdata.feedbus.FeedBus;
 import com.custom.marketdata.manager.AccountManager;
+import com.custom.marketdata.manager.OpenOrderManager;
 import com.custom.marketdata.manager.OrderManager;
 import com.custom.marketdata.manager.TickerManager;
 import com.custom.marketdata.manager.TradeManager;
@@ -21,7 +23,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.serialization.StringDeserializer;
-import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -44,7 +45,8 @@ public class Bootstrap {
     private final MatchingEngineLoader matchingEngineLoader;
     private final MessageSender messageSender;
     private final OrderBookSnapshotManager orderBookSnapshotManager;
-    private final RedissonClient redissonClient;
+    private final FeedBus feedBus;
+    private final OpenOrderManager openOrderManager;
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
 
     @PostConstruct
@@ -57,6 +59,7 @@ public class Bootstrap {
         startTickerThread(1);
         startSnapshotThread(1);
         startOrderBookSnapshotThread(1);
+        startOpenOrderIndexThread(1);
     }
 
     private void startMatchingEngine(int nThreads) {
@@ -94,11 +97,22 @@ public class Bootstrap {
         }
     }
 
+    private void startOpenOrderIndexThread(int nThreads) {
+        for (int i = 0; i < nThreads; i++) {
+            // every instance serves its own index from assigned partitions, without a consumer group
+            var consumer = getEngineMessageKafkaConsumer(null);
+            var thread = new OpenOrderIndexThread(consumer, openOrderManager, engineSnapshotManager, appProperties);
+            thread.setName("OpenOrderIndex-" + thread.getId());
+            thread.setUncaughtExceptionHandler(getUncaughtExceptionHandler(() -> startOpenOrderIndexThread(1)));
+            thread.start();
+        }
+    }
+
     private void startAccountPersistenceThread(int nThreads) {
         for (int i = 0; i < nThreads; i++) {
             String groupId = "Account";
             var consumer = getEngineMessageKafkaConsumer(groupId);
-            var thread = new AccountPersistenceThread(consumer, accountManager, redissonClient,
+            var thread = new AccountPersistenceThread(consumer, accountManager, feedBus,
                     appProperties);
             thread.setName(groupId + "-" + thread.getId());
             thread.setUncaughtExceptionHandler(getUncaughtExceptionHandler(() ->
@@ -122,7 +136,7 @@ public class Bootstrap {
         for (int i = 0; i < nThreads; i++) {
             String groupId = "Order";
             var consumer = getEngineMessageKafkaConsumer(groupId);
-            var thread = new OrderPersistenceThread(consumer, orderManager, redissonClient, appProperties);
+            var thread = new OrderPersistenceThread(consumer, orderManager, feedBus, appProperties);
             thread.setName(groupId + "-" + thread.getId());
             thread.setUncaughtExceptionHandler(getUncaughtExceptionHandler(() ->
                     startOrderPersistenceThread(1)));
@@ -145,7 +159,7 @@ public class Bootstrap {
         for (int i = 0; i < nThreads; i++) {
             String groupId = "Trade1";
             var consumer = getEngineMessageKafkaConsumer(groupId);
-            var thread = new TradePersistenceThread(consumer, tradeManager, redissonClient, appProperties);
+            var thread = new TradePersistenceThread(consumer, tradeManager, feedBus, appProperties);
             thread.setName(groupId + "-" + thread.getId());
             thread.setUncaughtExceptionHandler(getUncaughtExceptionHandler(() ->
                     startTradePersistenceThread(1)));
@@ -179,7 +193,9 @@ public class Bootstrap {
     private Properties getProperties(String groupId) {
         Properties properties = new Properties();
         properties.put("bootstrap.servers", kafkaProperties.getBootstrapServers());
-        properties.put("group.id", groupId);
+        if (groupId != null) {
+            properties.put("group.id", groupId);
+        }
         properties.put("enable.auto.commit", "false");
         properties.put("session.timeout.ms", "30000");
         properties.put("auto.offset.reset", "earliest");
@@ -3,15 +3,21 @@ package com.custom.feed;
 import com.alibaba.fastjson.JSON;
 import com.custom.feed.message.*;
 import com.custom.marketdata.entity.Candle;
+import com.custom.marketdata.feedbus.FeedBus;
+import com.custom.marketdata.feedbus.FeedBusListener;
 import com.custom.marketdata.orderbook.L2OrderBook;
+import com.custom.marketdata.orderbook.L2OrderBookIncrement;
+import com.custom.marketdata.orderbook.OrderBookCodec;
+import com.custom.marketdata.orderbook.OrderBookSnapshotManager;
 import com.custom.matchingengine.Account;
 import com.custom.matchingengine.Order;
 import com.custom.matchingengine.Trade;
 import com.custom.matchingengine.message.*;
-import com.custom.stripexecutor.StripedExecutorService;
+import com.custom.stripexecutor.StripedExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.redisson.client.codec.StringCodec;
 import org.springframework.stereotype.Component;
 
@@ -23,55 +29,59 @@ import javax.annotation.PostConstruct;
 public class FeedMessageListener {
     private final RedissonClient redissonClient;
     private final SessionManager sessionManager;
-    private final StripedExecutorService callbackExecutor =
-            new StripedExecutorService(Runtime.getRuntime().availableProcessors());
+    private final FeedBus feedBus;
+    private final StripedExecutor callbackExecutor =
+            new StripedExecutor("feed-callback", Runtime.getRuntime().availableProcessors());
 
     @PostConstruct
     public void run() {
-        // Private user orders - Frontend expects: 'order' channel
-        redissonClient.getTopic("order", StringCodec.INSTANCE).addListener(String.class, (c, msg) -> {
-            OrderMessage orderMessage = JSON.parseObject(msg, OrderMessage.class);
-            callbackExecutor.execute(orderMessage.getOrder().getUserId(), () -> {
-                // Original channel for legacy support
-                String legacyChannel = orderMessage.getOrder().getUserId() + "." + orderMessage.getOrder().getProductId() + ".order";
-                sessionManager.broadcast(legacyChannel, orderFeedMessage(orderMessage));
-                
-                // Frontend expected channel
-                String frontendChannel = "order";
-                sessionManager.broadcast(frontendChannel, frontendOrderMessage(orderMessage));
-            });
-        });
+        feedBus.addListener(new FeedBusListener() {
+            // Private user orders - Frontend expects: 'order' channel
+            @Override
+            public void onOrder(OrderMessage orderMessage) {
+                callbackExecutor.execute(orderMessage.getOrder().getUserId(), () -> {
+                    // Original channel for legacy support
+                    String legacyChannel = orderMessage.getOrder().getUserId() + "." + orderMessage.getOrder().getProductId() + ".order";
+                    sessionManager.broadcast(legacyChannel, orderFeedMessage(orderMessage));
 
-        // Private user balances - Frontend expects: 'balances' channel
-        redissonClient.getTopic("account", StringCodec.INSTANCE).addListener(String.class, (c, msg) -> {
-            AccountMessage accountMessage = JSON.parseObject(msg, AccountMessage.class);
-            callbackExecutor.execute(accountMessage.getAccount().getUserId(), () -> {
-                // Original channel for legacy support
-                String legacyChannel = accountMessage.getAccount().getUserId() + "." + accountMessage.getAccount().getCurrency() + ".funds";
-                sessionManager.broadcast(legacyChannel, accountFeedMessage(accountMessage));
-                
-                // Frontend expected channel
-                String frontendChannel = "balances";
-                sessionManager.broadcast(frontendChannel, frontendBalancesMessage(accountMessage));
-            });
-        });
+                    // Frontend expected channel
+                    String frontendChannel = "order";
+                    sessionManager.broadcast(frontendChannel, frontendOrderMessage(orderMessage));
+                });
+            }
+
+            // Private user balances - Frontend expects: 'balances' channel
+            @Override
+            public void onAccount(AccountMessage accountMessage) {
+                callbackExecutor.execute(accountMessage.getAccount().getUserId(), () -> {
+                    // Original channel for legacy support
+                    String legacyChannel = accountMessage.getAccount().getUserId() + "." + accountMessage.getAccount().getCurrency() + ".funds";
+                    sessionManager.broadcast(legacyChannel, accountFeedMessage(accountMessage));
+
+                    // Frontend expected channel
+                    String frontendChannel = "balances";
+                    sessionManager.broadcast(frontendChannel, frontendBalancesMessage(accountMessage));
+                });
+            }
+
+            // Public trades - Frontend expects: '{marketId}.trades' channel
+            @Override
+            public void onTrade(TradeMessage tradeMessage) {
+                String productId = tradeMessage.getTrade().getProductId();
+                callbackExecutor.execute(productId, () -> {
+                    // Original channel for legacy support
+                    String legacyChannel = productId + ".match";
+                    sessionManager.broadcast(legacyChannel, matchMessage(tradeMessage));
+
+                    // Frontend expected channel
+                    String frontendChannel = productId + ".trades";
+                    sessionManager.broadcast(frontendChannel, frontendTradesMessage(tradeMessage));
 
-        // Public trades - Frontend expects: '{marketId}.trades' channel
-        redissonClient.getTopic("trade", StringCodec.INSTANCE).addListener(String.class, (c, msg) -> {
-            TradeMessage tradeMessage = JSON.parseObject(msg, TradeMessage.class);
-            String productId = tradeMessage.getTrade().getProductId();
-            
-            // Original channel for legacy support
-            String legacyChannel = productId + ".match";
-            sessionManager.broadcast(legacyChannel, matchMessage(tradeMessage));
-            
-            // Frontend expected channel
-            String frontendChannel = productId + ".trades";
-            sessionManager.broadcast(frontendChannel, frontendTradesMessage(tradeMessage));
-            
-            // Private trade channel - Frontend expects: 'trade' channel for private trades
-            String privateChannel = "trade";
-            sessionManager.broadcast(privateChannel, frontendPrivateTradeMessage(tradeMessage));
+                    // Private trade channel - Frontend expects: 'trade' channel for private trades
+                    String privateChannel = "trade";
+                    sessionManager.broadcast(privateChannel, frontendPrivateTradeMessage(tradeMessage));
+                });
+            }
         });
 
         // Global tickers - Frontend expects: 'global.tickers' channel
@@ -80,11 +90,12 @@ public class FeedMessageListener {
             callbackExecutor.execute(tickerMessage.getProductId(), () -> {
                 // Original channel for legacy support
                 String legacyChannel = tickerMessage.getProductId() + ".ticker";
-                sessionManager.broadcast(legacyChannel, tickerFeedMessage(tickerMessage));
+                sessionManager.broadcast(legacyChannel, tickerFeedMessage(tickerMessage), legacyChannel);
                 
                 // Frontend expected global tickers channel
                 String frontendChannel = "global.tickers";
-                sessionManager.broadcast(frontendChannel, frontendGlobalTickersMessage(tickerMessage));
+                sessionManager.broadcast(frontendChannel, frontendGlobalTickersMessage(tickerMessage),
+                        frontendChannel + ":" + tickerMessage.getProductId());
             });
         });
 
@@ -104,31 +115,31 @@ public class FeedMessageListener {
         });
 
         // Order book updates - Frontend expects: '{marketId}.update' or '{marketId}.ob-inc' channel
-        redissonClient.getTopic("l2_batch", StringCodec.INSTANCE).addListener(String.class, (c, msg) -> {
-            L2OrderBook l2OrderBook = JSON.parseObject(msg, L2OrderBook.class);
+        redissonClient.getTopic(OrderBookSnapshotManager.L2_BATCH_TOPIC, ByteArrayCodec.INSTANCE).addListener(byte[].class, (c, msg) -> {
+            L2OrderBook l2OrderBook = OrderBookCodec.decodeL2OrderBook(msg);
             callbackExecutor.execute(l2OrderBook.getProductId(), () -> {
                 // Original channel for legacy support
                 String legacyChannel = l2OrderBook.getProductId() + ".level2";
-                sessionManager.broadcast(legacyChannel, l2OrderBook);
+                sessionManager.broadcast(legacyChannel, l2OrderBook, legacyChannel + ":snapshot");
                 
                 // Frontend expected order book update channel
                 String frontendChannel = l2OrderBook.getProductId() + ".update";
-                sessionManager.broadcast(frontendChannel, frontendOrderBookMessage(l2OrderBook));
+                sessionManager.broadcast(frontendChannel, frontendOrderBookMessage(l2OrderBook), frontendChannel);
             });
         });
 
         // Incremental order book updates - Frontend expects: '{marketId}.ob-inc' channel
-        redissonClient.getTopic("l2_increment", StringCodec.INSTANCE).addListener(String.class, (c, msg) -> {
-            // Parse incremental order book message
-            @SuppressWarnings("unchecked")
-            java.util.Map<String, Object> incrementMessage = JSON.parseObject(msg, java.util.Map.class);
-            String productId = (String) incrementMessage.get("productId");
-            if (productId != null) {
-                callbackExecutor.execute(productId, () -> {
-                    String frontendChannel = productId + ".ob-inc";
-                    sessionManager.broadcast(frontendChannel, frontendIncrementalOrderBookMessage(incrementMessage));
-                });
-            }
+        redissonClient.getTopic(OrderBookSnapshotManager.L2_INCREMENT_TOPIC, ByteArrayCodec.INSTANCE).addListener(byte[].class, (c, msg) -> {
+            L2OrderBookIncrement increment = OrderBookCodec.decodeL2OrderBookIncrement(msg);
+            callbackExecutor.execute(increment.getProductId(), () -> {
+                // Original channel for legacy support
+                String legacyChannel = increment.getProductId() + ".level2";
+                sessionManager.broadcast(legacyChannel, increment);
+
+                // Frontend expected incremental order book channel
+                String frontendChannel = increment.getProductId() + ".ob-inc";
+                sessionManager.broadcast(frontendChannel, frontendIncrementalOrderBookMessage(increment));
+            });
         });
 
         // Deposit address updates - Frontend expects: 'deposit_address' channel
@@ -381,11 +392,12 @@ public class FeedMessageListener {
         return message;
     }
 
-    private Object frontendIncrementalOrderBookMessage(java.util.Map<String, Object> incrementMessage) {
+    private Object frontendIncrementalOrderBookMessage(L2OrderBookIncrement increment) {
         java.util.Map<String, Object> message = new java.util.HashMap<>();
-        message.put("asks", incrementMessage.get("asks"));
-        message.put("bids", incrementMessage.get("bids"));
-        message.put("sequence", incrementMessage.get("sequence"));
+        message.put("asks", increment.getAsks());
+        message.put("bids", increment.getBids());
+        message.put("sequence", increment.getSequence());
+        message.put("prev_sequence", increment.getPrevSequence());
         return message;
     }
 
@@ -0,0 +1,33 @@
+package com.custom.feed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@ConfigurationProperties(prefix = "feed")
+@Getter
+@Setter
+@Validated
+public class FeedProperties {
+    /**
+     * Maximum number of frames waiting to be written to a single websocket session
+     */
+    @Min(1)
+    private int sessionQueueCapacity = 1000;
+
+    /**
+     * What to do with a session whose outbound queue is full
+     */
+    @NotNull
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.CONFLATE;
+
+    /**
+     * How the frames queued for a session are written to its socket
+     */
+    @NotNull
+    private SessionWriterMode sessionWriterMode = SessionWriterMode.STRIPED;
+}
@@ -0,0 +1,28 @@
+package com.custom.feed;
+
+import lombok.Getter;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A websocket session as seen by the subscription registry: an integer handle, the session itself and its
+ * outbound queue, so that fanout never has to look anything up by session id.
+ */
+@Getter
+class FeedSession {
+    private final int handle;
+    private final WebSocketSession session;
+    private final SessionOutbound outbound;
+    /**
+     * Guarded by this
+     */
+    private final Set<SubscriptionRegistry.Channel> channels = new HashSet<>();
+
+    FeedSession(int handle, WebSocketSession session, int queueCapacity) {
+        this.handle = handle;
+        this.session = session;
+        this.outbound = new SessionOutbound(session, queueCapacity);
+    }
+}
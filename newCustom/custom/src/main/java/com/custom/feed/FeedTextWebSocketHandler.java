@@ -21,6 +21,8 @@ public class FeedTextWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        sessionManager.addSession(session);
+
         // Handle query parameter-based subscriptions (Peatio/Finex style)
         String query = session.getUri().getQuery();
         if (query != null && query.contains("stream=")) {
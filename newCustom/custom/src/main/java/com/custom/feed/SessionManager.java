@@ -7,48 +7,89 @@ import com.custom.feed.message.PeatioMessageWrapper;
 import com.custom.feed.message.PongFeedMessage;
 import com.custom.feed.message.TickerFeedMessage;
 import com.custom.marketdata.entity.Ticker;
+import com.custom.marketdata.entity.TradeEntity;
+import com.custom.marketdata.manager.RecentTradeCache;
 import com.custom.marketdata.manager.TickerManager;
 import com.custom.marketdata.orderbook.L2OrderBook;
-import com.custom.marketdata.orderbook.L2OrderBookChange;
+import com.custom.marketdata.orderbook.L2OrderBookIncrement;
 import com.custom.marketdata.orderbook.OrderBookSnapshotManager;
-import com.custom.stripexecutor.StripedExecutorService;
+import com.custom.stripexecutor.StripedExecutor;
+import com.custom.stripexecutor.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
-
-import java.io.IOException;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadFactory;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class SessionManager {
-    private final ConcurrentHashMap<String, ConcurrentSkipListSet<String>> sessionIdsByChannel
-            = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, ConcurrentSkipListSet<String>> channelsBySessionId
-            = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, WebSocketSession> sessionById = new ConcurrentHashMap<>();
+    private static final int RECENT_TRADES_SNAPSHOT_SIZE = 50;
+
+    private final SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
     private final OrderBookSnapshotManager orderBookSnapshotManager;
     private final TickerManager tickerManager;
-    private final StripedExecutorService messageSenderExecutor =
-            new StripedExecutorService(Runtime.getRuntime().availableProcessors());
+    private final RecentTradeCache recentTradeCache;
+    private final FeedProperties feedProperties;
+    private StripedExecutor messageSenderExecutor;
+    /**
+     * Starts a virtual thread per session drain when {@link SessionWriterMode#VIRTUAL_THREAD} is in effect
+     */
+    private ThreadFactory sessionWriterThreadFactory;
+    private final Counter serializedBytesCounter = Counter.builder("gbe.feed.bytes.serialized")
+            .baseUnit("bytes")
+            .register(Metrics.globalRegistry);
+    private final Counter sentBytesCounter = Counter.builder("gbe.feed.bytes.sent")
+            .baseUnit("bytes")
+            .register(Metrics.globalRegistry);
+    private final Counter conflatedFramesCounter = Counter.builder("gbe.feed.session.frames.conflated")
+            .register(Metrics.globalRegistry);
+    private final Counter droppedFramesCounter = Counter.builder("gbe.feed.session.frames.dropped")
+            .register(Metrics.globalRegistry);
+    private final Counter disconnectedSessionsCounter = Counter.builder("gbe.feed.session.disconnected")
+            .register(Metrics.globalRegistry);
+
+    @PostConstruct
+    public void startWriters() {
+        if (feedProperties.getSessionWriterMode() == SessionWriterMode.VIRTUAL_THREAD) {
+            sessionWriterThreadFactory = VirtualThreads.newThreadFactory("feed-writer");
+            if (sessionWriterThreadFactory != null) {
+                logger.info("session writers run on virtual threads");
+                return;
+            }
+            logger.warn("virtual threads are not supported by this JVM, falling back to striped session writers");
+        }
+        messageSenderExecutor = new StripedExecutor("feed-sender", Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stopWriters() {
+        if (messageSenderExecutor != null) {
+            messageSenderExecutor.shutdown();
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("gbe.feed.session.queue.depth", subscriptionRegistry,
+                        r -> r.sessions().stream().mapToInt(x -> x.getOutbound().size()).sum())
+                .register(Metrics.globalRegistry);
+    }
 
     @SneakyThrows
     public void subOrUnSub(WebSocketSession session, List<String> productIds, List<String> currencies,
@@ -106,6 +147,7 @@ public class SessionManager {
                             subscribeChannel(session, productChannel);
                             // Also subscribe to the frontend channel for broadcasting
                             subscribeChannel(session, frontendChannel);
+                            sendRecentTrades(session, productId, frontendChannel);
                         } else {
                             unsubscribeChannel(session, productChannel);
                             unsubscribeChannel(session, frontendChannel);
@@ -175,172 +217,257 @@ public class SessionManager {
     }
 
     public void broadcast(String channel, Object message) {
-        Set<String> sessionIds = sessionIdsByChannel.get(channel);
-        logger.info("Broadcasting to channel: {} with {} sessions", channel, sessionIds != null ? sessionIds.size() : 0);
+        broadcast(channel, message, null);
+    }
+
+    /**
+     * @param conflationKey frames with the same key replace each other while they are still queued for a slow
+     *                      session, e.g. tickers or full order books. Null for messages that must all be delivered
+     */
+    public void broadcast(String channel, Object message, String conflationKey) {
+        FeedSession[] subscribers = subscriptionRegistry.subscribers(channel);
+        logger.info("Broadcasting to channel: {} with {} sessions", channel, subscribers.length);
         
-        if (sessionIds == null || sessionIds.isEmpty()) {
+        if (subscribers.length == 0) {
             return;
         }
 
-        sessionIds.forEach(sessionId -> {
-            messageSenderExecutor.execute(sessionId, () -> {
-                try {
-                    WebSocketSession session = sessionById.get(sessionId);
-                    if (session == null) {
-                        return;
-                    }
-                    logger.info("Sending message to session {} on channel {}", sessionId, channel);
-                    if (message instanceof L2OrderBook) {
-                        doSendL2OrderBook(session, (L2OrderBook) message, channel);
-                    } else {
-                        doSendJsonWithChannel(session, message, channel);
-                    }
-                } catch (Exception e) {
-                    logger.error("send error: {}", e.getMessage());
+        // serialize once, every subscriber gets the same immutable frame
+        TextMessage frame = frame(channel, message);
+        SessionOutbound.Action action;
+        if (message instanceof L2OrderBook l2OrderBook) {
+            action = session -> doSendL2OrderBook(session, l2OrderBook, frame);
+        } else if (message instanceof L2OrderBookIncrement increment) {
+            action = session -> doSendL2OrderBookIncrement(session, increment, frame, channel);
+        } else {
+            action = session -> doSendFrame(session, frame);
+        }
+
+        for (FeedSession subscriber : subscribers) {
+            enqueue(subscriber, conflationKey, action);
+        }
+    }
+
+    private void enqueue(WebSocketSession session, String conflationKey, SessionOutbound.Action action) {
+        FeedSession feedSession = subscriptionRegistry.get(session.getId());
+        if (feedSession == null) {
+            // closed or disconnected, registering it again would leak a session nobody removes
+            logger.debug("session {} is gone, not sending", session.getId());
+            return;
+        }
+        enqueue(feedSession, conflationKey, action);
+    }
+
+    private void enqueue(FeedSession feedSession, String conflationKey, SessionOutbound.Action action) {
+        SessionOutbound outbound = feedSession.getOutbound();
+        switch (outbound.offer(conflationKey, action, feedProperties.getSlowConsumerPolicy())) {
+            case DRAIN:
+                if (sessionWriterThreadFactory != null) {
+                    // at most one drain runs per session, so the frames still go out in order
+                    sessionWriterThreadFactory.newThread(() -> drain(outbound)).start();
+                } else {
+                    messageSenderExecutor.execute(feedSession.getHandle(), () -> drain(outbound));
                 }
-            });
-        });
+                break;
+            case CONFLATED:
+                conflatedFramesCounter.increment();
+                break;
+            case DROPPED_OLDEST:
+                droppedFramesCounter.increment();
+                break;
+            case OVERFLOW:
+                disconnectSlowConsumer(feedSession.getSession());
+                break;
+            default:
+        }
     }
 
-    private void sendL2OrderBookSnapshot(WebSocketSession session, String productId) {
-        messageSenderExecutor.execute(session.getId(), () -> {
+    private void drain(SessionOutbound outbound) {
+        SessionOutbound.Action action;
+        while ((action = outbound.poll()) != null) {
             try {
-                L2OrderBook l2OrderBook = orderBookSnapshotManager.getL2BatchOrderBook(productId);
-                if (l2OrderBook != null) {
-                    doSendL2OrderBook(session, l2OrderBook);
-                }
+                action.send(outbound.getSession());
             } catch (Exception e) {
-                logger.error("send level2 snapshot error: {}", e.getMessage(), e);
+                logger.error("send error: {}", e.getMessage());
             }
-        });
+        }
     }
 
-    private void doSendL2OrderBook(WebSocketSession session, L2OrderBook l2OrderBook, String channel) throws IOException {
-        String key = "LAST_L2_ORDER_BOOK:" + l2OrderBook.getProductId();
-
-        if (!session.getAttributes().containsKey(key)) {
-            L2SnapshotFeedMessage snapshotMessage = new L2SnapshotFeedMessage(l2OrderBook);
-            doSendJsonWithChannel(session, snapshotMessage, channel);
-            session.getAttributes().put(key, l2OrderBook);
-            return;
+    private void disconnectSlowConsumer(WebSocketSession session) {
+        logger.warn("outbound queue full, disconnecting session: {}", session.getId());
+        disconnectedSessionsCounter.increment();
+        removeSession(session);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            logger.error("close session error: {}", e.getMessage());
         }
+    }
 
-        L2OrderBook lastL2OrderBook = (L2OrderBook) session.getAttributes().get(key);
-        if (lastL2OrderBook.getSequence() >= l2OrderBook.getSequence()) {
-            logger.warn("discard l2 order book, too old: last={} new={}", lastL2OrderBook.getSequence(),
-                    l2OrderBook.getSequence());
-            return;
-        }
+    private void sendL2OrderBookSnapshot(WebSocketSession session, String productId) {
+        enqueue(session, null, s -> {
+            L2OrderBook l2OrderBook = orderBookSnapshotManager.getL2BatchOrderBook(productId);
+            if (l2OrderBook != null) {
+                doSendL2OrderBook(s, l2OrderBook);
+            }
+        });
+    }
 
-        List<L2OrderBookChange> changes = lastL2OrderBook.diff(l2OrderBook);
-        if (changes != null && !changes.isEmpty()) {
-            L2UpdateFeedMessage l2UpdateFeedMessage = new L2UpdateFeedMessage(l2OrderBook.getProductId(), changes);
-            doSendJsonWithChannel(session, l2UpdateFeedMessage, channel);
+    private void doSendL2OrderBook(WebSocketSession session, L2OrderBook l2OrderBook, TextMessage snapshotFrame)
+            throws IOException {
+        String key = "LAST_L2_ORDER_BOOK:" + l2OrderBook.getProductId();
+        if (session.getAttributes().containsKey(key)) {
+            // the session is kept up to date by increments, snapshots are only for (re)sync
+            return;
         }
 
-        session.getAttributes().put(key, l2OrderBook);
+        doSendFrame(session, snapshotFrame);
+        session.getAttributes().put(key, l2OrderBook.getSequence());
     }
 
     private void doSendL2OrderBook(WebSocketSession session, L2OrderBook l2OrderBook) throws IOException {
         String key = "LAST_L2_ORDER_BOOK:" + l2OrderBook.getProductId();
-
-        if (!session.getAttributes().containsKey(key)) {
-            doSendJson(session, new L2SnapshotFeedMessage(l2OrderBook));
-            session.getAttributes().put(key, l2OrderBook);
+        if (session.getAttributes().containsKey(key)) {
             return;
         }
 
-        L2OrderBook lastL2OrderBook = (L2OrderBook) session.getAttributes().get(key);
-        if (lastL2OrderBook.getSequence() >= l2OrderBook.getSequence()) {
-            logger.warn("discard l2 order book, too old: last={} new={}", lastL2OrderBook.getSequence(),
-                    l2OrderBook.getSequence());
+        doSendJson(session, new L2SnapshotFeedMessage(l2OrderBook));
+        session.getAttributes().put(key, l2OrderBook.getSequence());
+    }
+
+    private void doSendL2OrderBookIncrement(WebSocketSession session, L2OrderBookIncrement increment,
+                                            TextMessage updateFrame, String channel) throws IOException {
+        String key = "LAST_L2_ORDER_BOOK:" + increment.getProductId();
+        Long lastSequence = (Long) session.getAttributes().get(key);
+        if (lastSequence == null) {
+            // no snapshot yet, the next one will bring the session in sync
+            return;
+        }
+        if (increment.getSequence() <= lastSequence) {
             return;
         }
 
-        List<L2OrderBookChange> changes = lastL2OrderBook.diff(l2OrderBook);
-        if (changes != null && !changes.isEmpty()) {
-            L2UpdateFeedMessage l2UpdateFeedMessage = new L2UpdateFeedMessage(l2OrderBook.getProductId(), changes);
-            doSendJson(session, l2UpdateFeedMessage);
+        if (increment.getPrevSequence() > lastSequence) {
+            // the session is behind, bring it back with a snapshot of its own
+            logger.warn("l2 increment gap, resync: session={} last={} prev={}", session.getId(), lastSequence,
+                    increment.getPrevSequence());
+            session.getAttributes().remove(key);
+            L2OrderBook l2OrderBook = orderBookSnapshotManager.getL2BatchOrderBook(increment.getProductId());
+            if (l2OrderBook == null) {
+                return;
+            }
+            doSendL2OrderBook(session, l2OrderBook, frame(channel, l2OrderBook));
+            lastSequence = l2OrderBook.getSequence();
+            if (increment.getSequence() <= lastSequence || increment.getPrevSequence() > lastSequence) {
+                return;
+            }
         }
 
-        session.getAttributes().put(key, l2OrderBook);
+        doSendFrame(session, updateFrame);
+        session.getAttributes().put(key, increment.getSequence());
     }
 
     private void sendTicker(WebSocketSession session, String productId) {
-        messageSenderExecutor.execute(session.getId(), () -> {
-            try {
-                Ticker ticker = tickerManager.getTicker(productId);
-                if (ticker != null) {
-                    // For direct subscription (legacy), send without channel wrapper
-                    doSendJson(session, new TickerFeedMessage(ticker));
-                }
-            } catch (Exception e) {
-                logger.error("send ticker error: {}", e.getMessage(), e);
+        enqueue(session, null, s -> {
+            Ticker ticker = tickerManager.getTicker(productId);
+            if (ticker != null) {
+                // For direct subscription (legacy), send without channel wrapper
+                doSendJson(s, new TickerFeedMessage(ticker));
             }
         });
     }
 
+    private void sendRecentTrades(WebSocketSession session, String productId, String channel) {
+        enqueue(session, null, s -> {
+            TextMessage recentTradesFrame = recentTradeCache.render(productId, channel, RECENT_TRADES_SNAPSHOT_SIZE,
+                    trades -> frame(channel, recentTradesMessage(trades)));
+            doSendFrame(s, recentTradesFrame);
+        });
+    }
+
+    private Map<String, Object> recentTradesMessage(List<TradeEntity> trades) {
+        List<Map<String, Object>> tradeData = new ArrayList<>(trades.size());
+        for (TradeEntity trade : trades) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("tid", trade.getSequence());
+            data.put("taker_type", trade.getSide().name().toLowerCase());
+            data.put("date", trade.getTime().toInstant().getEpochSecond());
+            data.put("price", trade.getPrice().stripTrailingZeros().toPlainString());
+            data.put("amount", trade.getSize().stripTrailingZeros().toPlainString());
+            data.put("total", trade.getPrice().multiply(trade.getSize()).stripTrailingZeros().toPlainString());
+            tradeData.add(data);
+        }
+        Map<String, Object> message = new HashMap<>();
+        message.put("trades", tradeData);
+        return message;
+    }
+
     public void sendPong(WebSocketSession session) {
-        messageSenderExecutor.execute(session.getId(), () -> {
-            try {
-                PongFeedMessage pongFeedMessage = new PongFeedMessage();
-                pongFeedMessage.setType("pong");
-                session.sendMessage(new TextMessage(JSON.toJSONString(pongFeedMessage)));
-            } catch (Exception e) {
-                logger.error("send pong error: {}", e.getMessage());
-            }
+        enqueue(session, null, s -> {
+            PongFeedMessage pongFeedMessage = new PongFeedMessage();
+            pongFeedMessage.setType("pong");
+            doSendJson(s, pongFeedMessage);
         });
     }
 
-    private void doSendJson(WebSocketSession session, Object msg) {
-        try {
-            session.sendMessage(new TextMessage(JSON.toJSONString(msg)));
-        } catch (Exception e) {
-            logger.error("send websocket message error: {}", e.getMessage());
+    private TextMessage frame(String channel, Object message) {
+        Object feedMessage;
+        if (message instanceof L2OrderBookIncrement increment) {
+            feedMessage = new L2UpdateFeedMessage(increment.getProductId(), increment.toChanges());
+        } else if (message instanceof L2OrderBook l2OrderBook) {
+            feedMessage = new L2SnapshotFeedMessage(l2OrderBook);
+        } else {
+            feedMessage = message;
         }
+        // Wrap message with Peatio-style routing key for frontend compatibility
+        byte[] payload = JSON.toJSONBytes(PeatioMessageWrapper.wrap(channel, feedMessage));
+        serializedBytesCounter.increment(payload.length);
+        return new TextMessage(payload);
     }
 
-    private void doSendJsonWithChannel(WebSocketSession session, Object msg, String channel) {
+    private void doSendFrame(WebSocketSession session, TextMessage frame) throws IOException {
+        session.sendMessage(frame);
+        sentBytesCounter.increment(frame.getPayloadLength());
+    }
+
+    private void doSendJson(WebSocketSession session, Object msg) {
         try {
-            // Wrap message with Peatio-style routing key for frontend compatibility
-            Map<String, Object> wrappedMessage = PeatioMessageWrapper.wrap(channel, msg);
-            session.sendMessage(new TextMessage(JSON.toJSONString(wrappedMessage)));
+            byte[] payload = JSON.toJSONBytes(msg);
+            serializedBytesCounter.increment(payload.length);
+            doSendFrame(session, new TextMessage(payload));
         } catch (Exception e) {
-            logger.error("send websocket message with channel error: {}", e.getMessage());
+            logger.error("send websocket message error: {}", e.getMessage());
         }
     }
 
     private void subscribeChannel(WebSocketSession session, String channel) {
         logger.info("Subscribing session {} to channel {}", session.getId(), channel);
-        sessionIdsByChannel
-                .computeIfAbsent(channel, k -> new ConcurrentSkipListSet<>())
-                .add(session.getId());
-        channelsBySessionId.computeIfAbsent(session.getId(), k -> new ConcurrentSkipListSet<>())
-                .add(channel);
-        sessionById.put(session.getId(), session);
+        FeedSession feedSession = subscriptionRegistry.get(session.getId());
+        if (feedSession == null) {
+            return;
+        }
+        subscriptionRegistry.subscribe(feedSession, channel);
     }
 
     public void unsubscribeChannel(WebSocketSession session, String channel) {
-        if (sessionIdsByChannel.containsKey(channel)) {
-            sessionIdsByChannel.get(channel).remove(session.getId());
+        FeedSession feedSession = subscriptionRegistry.get(session.getId());
+        if (feedSession != null) {
+            subscriptionRegistry.unsubscribe(feedSession, channel);
         }
-        channelsBySessionId.computeIfPresent(session.getId(), (k, v) -> {
-            v.remove(channel);
-            return v;
-        });
+    }
+
+    /**
+     * Starts tracking a newly connected session. Only sessions added here, and not removed since, are sent to.
+     */
+    public void addSession(WebSocketSession session) {
+        subscriptionRegistry.register(session, feedProperties.getSessionQueueCapacity());
     }
 
     public void removeSession(WebSocketSession session) {
-        ConcurrentSkipListSet<String> channels = channelsBySessionId.remove(session.getId());
-        if (channels != null) {
-            for (String channel : channels) {
-                ConcurrentSkipListSet<String> sessionIds = sessionIdsByChannel.get(channel);
-                if (sessionIds != null) {
-                    sessionIds.remove(session.getId());
-                }
-            }
+        FeedSession feedSession = subscriptionRegistry.remove(session.getId());
+        if (feedSession != null) {
+            feedSession.getOutbound().close();
         }
-        sessionById.remove(session.getId());
     }
 
     public String getUserId(WebSocketSession session) {
@@ -0,0 +1,122 @@
+package com.custom.feed;
+
+import lombok.Getter;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded queue of frames waiting to be written to one websocket session. At most one drain is in flight per
+ * session, so frames are written in order without holding a sender thread per queued frame.
+ */
+class SessionOutbound {
+    @Getter
+    private final WebSocketSession session;
+    private final int capacity;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, Entry> entryByConflationKey = new HashMap<>();
+    private boolean draining;
+    private boolean closed;
+
+    SessionOutbound(WebSocketSession session, int capacity) {
+        this.session = session;
+        this.capacity = capacity;
+    }
+
+    synchronized OfferResult offer(String conflationKey, Action action, SlowConsumerPolicy policy) {
+        if (closed) {
+            return OfferResult.CLOSED;
+        }
+
+        if (conflationKey != null && policy == SlowConsumerPolicy.CONFLATE) {
+            Entry pending = entryByConflationKey.get(conflationKey);
+            if (pending != null) {
+                pending.action = action;
+                return OfferResult.CONFLATED;
+            }
+        }
+
+        OfferResult result = OfferResult.QUEUED;
+        if (entries.size() >= capacity) {
+            if (policy == SlowConsumerPolicy.DISCONNECT) {
+                close();
+                return OfferResult.OVERFLOW;
+            }
+            Entry oldest = entries.poll();
+            if (oldest.conflationKey != null) {
+                entryByConflationKey.remove(oldest.conflationKey);
+            }
+            result = OfferResult.DROPPED_OLDEST;
+        }
+
+        Entry entry = new Entry(conflationKey, action);
+        entries.add(entry);
+        if (conflationKey != null && policy == SlowConsumerPolicy.CONFLATE) {
+            entryByConflationKey.put(conflationKey, entry);
+        }
+
+        if (!draining) {
+            draining = true;
+            return OfferResult.DRAIN;
+        }
+        return result;
+    }
+
+    /**
+     * Takes the next frame to write, or returns null and ends the current drain if there is none.
+     */
+    synchronized Action poll() {
+        Entry entry = entries.poll();
+        if (entry == null) {
+            draining = false;
+            return null;
+        }
+        if (entry.conflationKey != null) {
+            entryByConflationKey.remove(entry.conflationKey, entry);
+        }
+        return entry.action;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void close() {
+        closed = true;
+        entries.clear();
+        entryByConflationKey.clear();
+    }
+
+    enum OfferResult {
+        /**
+         * Queued into an idle queue, the caller has to schedule a drain
+         */
+        DRAIN,
+        QUEUED,
+        CONFLATED,
+        DROPPED_OLDEST,
+        /**
+         * The queue was full and the session has to be disconnected
+         */
+        OVERFLOW,
+        CLOSED,
+    }
+
+    @FunctionalInterface
+    interface Action {
+        void send(WebSocketSession session) throws IOException;
+    }
+
+    private static class Entry {
+        private final String conflationKey;
+        private Action action;
+
+        private Entry(String conflationKey, Action action) {
+            this.conflationKey = conflationKey;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.custom.feed;
+
+public enum SessionWriterMode {
+    /**
+     * Sessions share a fixed pool of sender threads, one per core, striped by session
+     */
+    STRIPED,
+    /**
+     * Every session drains its outbound queue on its own virtual thread, so a socket blocked in a write only
+     * parks its own writer. Needs JDK 21 or later, falls back to {@link #STRIPED} otherwise
+     */
+    VIRTUAL_THREAD,
+}
@@ -0,0 +1,17 @@
+package com.custom.feed;
+
+public enum SlowConsumerPolicy {
+    /**
+     * Replace a queued frame with a newer one for the same ticker or order book, drop the oldest frame if the
+     * queue is still full
+     */
+    CONFLATE,
+    /**
+     * Drop the oldest queued frame to make room
+     */
+    DROP_OLDEST,
+    /**
+     * Close the session once its queue is full
+     */
+    DISCONNECT,
+}
@@ -0,0 +1,130 @@
+package com.custom.feed;
+
+import lombok.Getter;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Channels and sessions interned to integer handles. Each channel keeps its subscribers in a copy-on-write
+ * array, so a broadcast is a plain loop over session references while (un)subscribing pays for the copy.
+ */
+class SubscriptionRegistry {
+    private static final FeedSession[] NO_SUBSCRIBERS = new FeedSession[0];
+
+    private final ConcurrentHashMap<String, Channel> channelByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FeedSession> sessionById = new ConcurrentHashMap<>();
+    private final AtomicInteger channelHandleSequence = new AtomicInteger();
+    private final AtomicInteger sessionHandleSequence = new AtomicInteger();
+
+    FeedSession register(WebSocketSession session, int queueCapacity) {
+        return sessionById.computeIfAbsent(session.getId(),
+                k -> new FeedSession(sessionHandleSequence.incrementAndGet(), session, queueCapacity));
+    }
+
+    FeedSession get(String sessionId) {
+        return sessionById.get(sessionId);
+    }
+
+    Collection<FeedSession> sessions() {
+        return sessionById.values();
+    }
+
+    FeedSession[] subscribers(String channelName) {
+        Channel channel = channelByName.get(channelName);
+        return channel != null ? channel.subscribers : NO_SUBSCRIBERS;
+    }
+
+    void subscribe(FeedSession feedSession, String channelName) {
+        while (true) {
+            Channel channel = channelByName.computeIfAbsent(channelName,
+                    k -> new Channel(channelHandleSequence.incrementAndGet(), k));
+            synchronized (channel) {
+                // lost a race with the last unsubscriber, the channel is no longer registered
+                if (channel.retired) {
+                    continue;
+                }
+                synchronized (feedSession) {
+                    if (!feedSession.getChannels().add(channel)) {
+                        return;
+                    }
+                }
+                FeedSession[] subscribers = Arrays.copyOf(channel.subscribers, channel.subscribers.length + 1);
+                subscribers[subscribers.length - 1] = feedSession;
+                channel.subscribers = subscribers;
+                return;
+            }
+        }
+    }
+
+    void unsubscribe(FeedSession feedSession, String channelName) {
+        Channel channel = channelByName.get(channelName);
+        if (channel != null) {
+            unsubscribe(feedSession, channel);
+        }
+    }
+
+    /**
+     * Drops the session and all of its subscriptions.
+     */
+    FeedSession remove(String sessionId) {
+        FeedSession feedSession = sessionById.remove(sessionId);
+        if (feedSession == null) {
+            return null;
+        }
+        List<Channel> channels;
+        synchronized (feedSession) {
+            channels = new ArrayList<>(feedSession.getChannels());
+        }
+        for (Channel channel : channels) {
+            unsubscribe(feedSession, channel);
+        }
+        return feedSession;
+    }
+
+    private void unsubscribe(FeedSession feedSession, Channel channel) {
+        synchronized (channel) {
+            synchronized (feedSession) {
+                if (!feedSession.getChannels().remove(channel)) {
+                    return;
+                }
+            }
+            FeedSession[] subscribers = channel.subscribers;
+            int n = subscribers.length;
+            for (int i = 0; i < n; i++) {
+                if (subscribers[i] == feedSession) {
+                    FeedSession[] remaining = new FeedSession[n - 1];
+                    System.arraycopy(subscribers, 0, remaining, 0, i);
+                    System.arraycopy(subscribers, i + 1, remaining, i, n - i - 1);
+                    channel.subscribers = remaining;
+                    break;
+                }
+            }
+            if (channel.subscribers.length == 0) {
+                channel.retired = true;
+                channelByName.remove(channel.name, channel);
+            }
+        }
+    }
+
+    @Getter
+    static class Channel {
+        private final int handle;
+        private final String name;
+        private volatile FeedSession[] subscribers = NO_SUBSCRIBERS;
+        /**
+         * Guarded by this
+         */
+        private boolean retired;
+
+        private Channel(int handle, String name) {
+            this.handle = handle;
+            this.name = name;
+        }
+    }
+}
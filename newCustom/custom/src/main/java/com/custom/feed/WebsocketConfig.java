@@ -1,6 +1,7 @@
 package com.custom.feed;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -9,6 +10,7 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @Configuration
 @EnableWebSocket
 @RequiredArgsConstructor
+@EnableConfigurationProperties(FeedProperties.class)
 public class WebsocketConfig implements WebSocketConfigurer {
     private final FeedTextWebSocketHandler myHandler;
     private final AuthHandshakeInterceptor authHandshakeInterceptor;
@@ -1,20 +1,18 @@
 package com.custom.marketdata;
 
-import com.alibaba.fastjson.JSON;
 import com.custom.AppProperties;
 import com.custom.marketdata.entity.AccountEntity;
+import com.custom.marketdata.feedbus.FeedBus;
 import com.custom.marketdata.manager.AccountManager;
 import com.custom.matchingengine.Account;
 import com.custom.matchingengine.message.AccountMessage;
 import com.custom.matchingengine.message.Message;
 import com.custom.middleware.kafka.KafkaConsumerThread;
+import com.custom.middleware.kafka.OffsetCommitTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
-import org.redisson.api.RTopic;
-import org.redisson.api.RedissonClient;
-import org.redisson.client.codec.StringCodec;
 
 import java.time.Duration;
 import java.util.Collection;
@@ -26,20 +24,29 @@ import java.util.Map;
 public class AccountPersistenceThread extends KafkaConsumerThread<String, Message> implements ConsumerRebalanceListener {
     private final AccountManager accountManager;
     private final AppProperties appProperties;
-    private final RTopic accountTopic;
+    private final FeedBus feedBus;
+    private final ShardedWriter<AccountEntity> writer;
+    private final OffsetCommitTracker commitTracker;
 
     public AccountPersistenceThread(KafkaConsumer<String, Message> consumer, AccountManager accountManager,
-                                    RedissonClient redissonClient,
+                                    FeedBus feedBus,
                                     AppProperties appProperties) {
         super(consumer, logger);
         this.accountManager = accountManager;
         this.appProperties = appProperties;
-        this.accountTopic = redissonClient.getTopic("account", StringCodec.INSTANCE);
+        this.feedBus = feedBus;
+        this.writer = new ShardedWriter<>("Account", appProperties.getPersistenceWriterThreads(),
+                AccountEntity::getUserId, accountManager::saveAll);
+        this.commitTracker = new OffsetCommitTracker(appProperties.getPersistenceMaxInFlightBatches());
     }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> collection) {
-
+        // let the writes in flight finish so that the next owner of the partitions starts after them
+        var offsets = commitTracker.awaitCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
     }
 
     @Override
@@ -47,6 +54,11 @@ public class AccountPersistenceThread extends KafkaConsumerThread<String, Messag
 
     }
 
+    @Override
+    protected void doClose() {
+        writer.shutdown();
+    }
+
     @Override
     protected void doSubscribe() {
         consumer.subscribe(Collections.singletonList(appProperties.getMatchingEngineMessageTopic()), this);
@@ -55,18 +67,31 @@ public class AccountPersistenceThread extends KafkaConsumerThread<String, Messag
     @Override
     protected void doPoll() {
         var records = consumer.poll(Duration.ofSeconds(5));
+        commitCompleted();
+        if (records.isEmpty()) {
+            return;
+        }
+
         Map<String, AccountEntity> accounts = new HashMap<>();
+        FeedBus.Batch feedBatch = feedBus.newBatch();
         records.forEach(x -> {
             Message message = x.value();
             if (message instanceof AccountMessage accountMessage) {
                 AccountEntity accountEntity = accountEntity(accountMessage);
                 accounts.put(accountEntity.getId(), accountEntity);
-                accountTopic.publishAsync(JSON.toJSONString(accountMessage));
+                feedBatch.add(accountMessage);
             }
         });
-        accountManager.saveAll(accounts.values());
+        feedBatch.publish();
+        OffsetCommitTracker.Batch batch = commitTracker.begin(records);
+        writer.writeAll(accounts.values()).whenComplete((r, e) -> batch.complete(e));
+    }
 
-        consumer.commitAsync();
+    private void commitCompleted() {
+        var offsets = commitTracker.pollCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, null);
+        }
     }
 
     private AccountEntity accountEntity(AccountMessage message) {
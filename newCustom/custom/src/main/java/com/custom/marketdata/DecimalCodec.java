@@ -0,0 +1,56 @@
+package com.custom.marketdata;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Binary form of a decimal shared by the feed bus and order book codecs: form (byte), then scale (int) and the
+ * unscaled value, as a long when it fits, which it does for any realistic price or size. Form -1 stands for null.
+ */
+public final class DecimalCodec {
+    private static final byte NULL = -1;
+    private static final byte LONG = 0;
+    private static final byte BIG_INTEGER = 1;
+
+    private DecimalCodec() {
+    }
+
+    public static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            out.writeByte(LONG);
+            out.writeInt(value.scale());
+            out.writeLong(unscaled.longValue());
+        } else {
+            byte[] magnitude = unscaled.toByteArray();
+            out.writeByte(BIG_INTEGER);
+            out.writeInt(value.scale());
+            out.writeShort(magnitude.length);
+            out.write(magnitude);
+        }
+    }
+
+    public static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        byte form = in.readByte();
+        if (form == NULL) {
+            return null;
+        }
+        int scale = in.readInt();
+        if (form == LONG) {
+            return BigDecimal.valueOf(in.readLong(), scale);
+        }
+        if (form != BIG_INTEGER) {
+            throw new IOException("unexpected decimal form: " + form);
+        }
+        byte[] magnitude = new byte[in.readUnsignedShort()];
+        in.readFully(magnitude);
+        return new BigDecimal(new BigInteger(magnitude), scale);
+    }
+}
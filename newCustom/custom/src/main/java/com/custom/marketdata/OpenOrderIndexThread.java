@@ -0,0 +1,83 @@
+package com.custom.marketdata;
+
+import com.custom.AppProperties;
+import com.custom.marketdata.manager.OpenOrderManager;
+import com.custom.matchingengine.Order;
+import com.custom.matchingengine.Product;
+import com.custom.matchingengine.message.CommandEndMessage;
+import com.custom.matchingengine.message.Message;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.snapshot.EngineSnapshotManager;
+import com.custom.matchingengine.snapshot.EngineState;
+import com.custom.middleware.kafka.KafkaConsumerThread;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the {@link OpenOrderManager} of this instance in sync with the engine: restores it from the engine
+ * snapshot and applies every order message after it.
+ * <p>
+ * Every instance serves its own index, so the partitions are assigned rather than subscribed through a consumer
+ * group: nothing is committed, and the index is restored from the snapshot on every start.
+ */
+@Slf4j
+public class OpenOrderIndexThread extends KafkaConsumerThread<String, Message> {
+    private final OpenOrderManager openOrderManager;
+    private final EngineSnapshotManager stateStore;
+    private final AppProperties appProperties;
+
+    public OpenOrderIndexThread(KafkaConsumer<String, Message> consumer, OpenOrderManager openOrderManager,
+                                EngineSnapshotManager engineSnapshotManager, AppProperties appProperties) {
+        super(consumer, logger);
+        this.openOrderManager = openOrderManager;
+        this.stateStore = engineSnapshotManager;
+        this.appProperties = appProperties;
+    }
+
+    @Override
+    protected void doSubscribe() {
+        // the engine writes its messages to a single partition, the snapshot offset refers to it
+        TopicPartition partition = new TopicPartition(appProperties.getMatchingEngineMessageTopic(), 0);
+        consumer.assign(Collections.singletonList(partition));
+        stateStore.runInSession(session -> {
+            EngineState engineState = stateStore.getEngineState(session);
+            if (engineState != null && engineState.getMessageOffset() != null) {
+                this.consumer.seek(partition, engineState.getMessageOffset() + 1);
+            } else {
+                this.consumer.seekToBeginning(Collections.singletonList(partition));
+            }
+
+            List<Order> openOrders = new ArrayList<>();
+            for (Product product : this.stateStore.getProducts(session)) {
+                openOrders.addAll(stateStore.getOrders(session, product.getId()));
+            }
+            openOrderManager.reset(openOrders);
+            logger.info("open order index restored: {} order(s)", openOrders.size());
+        });
+    }
+
+    @Override
+    protected void doPoll() {
+        var records = consumer.poll(Duration.ofSeconds(5));
+        records.forEach(x -> {
+            Message message = x.value();
+            if (message instanceof OrderMessage orderMessage) {
+                openOrderManager.apply(orderMessage.getOrder());
+            } else if (message instanceof CommandEndMessage commandEndMessage &&
+                    commandEndMessage.getResults() != null) {
+                openOrderManager.applyResults(commandEndMessage.getResults());
+            }
+        });
+    }
+
+    @Override
+    protected void doClose() {
+        openOrderManager.invalidate();
+    }
+}
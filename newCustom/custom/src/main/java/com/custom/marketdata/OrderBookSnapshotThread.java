@@ -3,6 +3,8 @@ package com.custom.marketdata;
 import com.custom.AppProperties;
 import com.custom.enums.OrderStatus;
 import com.custom.marketdata.orderbook.L2OrderBook;
+import com.custom.marketdata.orderbook.L2OrderBookIncrement;
+import com.custom.marketdata.orderbook.L3OrderBook;
 import com.custom.marketdata.orderbook.OrderBook;
 import com.custom.marketdata.orderbook.OrderBookSnapshotManager;
 import com.custom.matchingengine.Order;
@@ -18,9 +20,12 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class OrderBookSnapshotThread extends KafkaConsumerThread<String, Message> implements ConsumerRebalanceListener {
@@ -57,10 +62,19 @@ public class OrderBookSnapshotThread extends KafkaConsumerThread<String, Message
             // restore order books
             for (Product product : this.stateStore.getProducts(session)) {
                 orderBooks.remove(product.getId());
+                l2OrderBooks.remove(product.getId());
+                OrderBook orderBook = getOrderBook(product.getId());
                 for (Order order : stateStore.getOrders(session, product.getId())) {
-                    OrderBook orderBook = getOrderBook(product.getId());
                     orderBook.addOrder(order);
                 }
+                if (engineState != null) {
+                    Long orderBookSequence = engineState.getOrderBookSequences().get(product.getId());
+                    if (orderBookSequence != null) {
+                        orderBook.setSequence(orderBookSequence);
+                    }
+                }
+                // the next full snapshot is the resync point, there is nothing to chain increments to
+                orderBook.resetIncrement(OrderBookSnapshotManager.L2_BATCH_DEPTH);
             }
         });
     }
@@ -80,23 +94,38 @@ public class OrderBookSnapshotThread extends KafkaConsumerThread<String, Message
                 OrderBook orderBook = getOrderBook(order.getProductId());
                 if (order.getStatus() == OrderStatus.OPEN) {
                     orderBook.addOrder(order);
-                } else {
+                } else if (order.getStatus() == OrderStatus.FILLED || order.getStatus() == OrderStatus.CANCELLED) {
                     orderBook.removeOrder(order);
                 }
                 orderBook.setSequence(orderMessage.getOrderBookSequence());
             }
         });
 
-        orderBooks.entrySet().parallelStream().forEach(e -> {
-            String productId=e.getKey();
-            OrderBook orderBook= e.getValue();
-            L2OrderBook l2OrderBook = l2OrderBooks.get(productId);
-            if (l2OrderBook == null ||
-                    orderBook.getSequence() - l2OrderBook.getSequence() > 1000 ||
-                    System.currentTimeMillis() - l2OrderBook.getTime() > 1000) {
-                takeL2OrderBookSnapshot(orderBook);
+        List<L2OrderBookIncrement> increments = new ArrayList<>();
+        for (OrderBook orderBook : orderBooks.values()) {
+            L2OrderBookIncrement increment = orderBook.takeIncrement(OrderBookSnapshotManager.L2_BATCH_DEPTH);
+            if (increment != null) {
+                increments.add(increment);
             }
-        });
+        }
+
+        // full snapshots are only needed by subscribers that (re)sync and by the rest api
+        List<OrderBook> snapshotOrderBooks = orderBooks.values().stream()
+                .filter(orderBook -> {
+                    L2OrderBook l2OrderBook = l2OrderBooks.get(orderBook.getProductId());
+                    return l2OrderBook == null || (orderBook.getSequence() != l2OrderBook.getSequence() &&
+                            (orderBook.getSequence() - l2OrderBook.getSequence() > 1000 ||
+                                    System.currentTimeMillis() - l2OrderBook.getTime() > 1000));
+                })
+                .collect(Collectors.toList());
+        List<L2OrderBook> snapshots = snapshotOrderBooks.parallelStream()
+                .map(this::takeL2OrderBookSnapshot)
+                .collect(Collectors.toList());
+        List<L3OrderBook> l3Snapshots = snapshotOrderBooks.parallelStream()
+                .map(L3OrderBook::new)
+                .collect(Collectors.toList());
+
+        orderBookSnapshotManager.publish(increments, snapshots, l3Snapshots);
     }
 
     private OrderBook getOrderBook(String productId) {
@@ -108,11 +137,11 @@ public class OrderBookSnapshotThread extends KafkaConsumerThread<String, Message
         return orderBook;
     }
 
-    private void takeL2OrderBookSnapshot(OrderBook orderBook) {
+    private L2OrderBook takeL2OrderBookSnapshot(OrderBook orderBook) {
         logger.info("taking level2 order book snapshot: sequence={}", orderBook.getSequence());
-        L2OrderBook l2OrderBook = new L2OrderBook(orderBook, 25);
+        L2OrderBook l2OrderBook = new L2OrderBook(orderBook, OrderBookSnapshotManager.L2_BATCH_DEPTH);
         l2OrderBooks.put(orderBook.getProductId(), l2OrderBook);
-        orderBookSnapshotManager.saveL2BatchOrderBook(l2OrderBook);
+        return l2OrderBook;
     }
 
 }
@@ -1,42 +1,63 @@
 package com.custom.marketdata;
 
-import com.alibaba.fastjson.JSON;
 import com.custom.AppProperties;
+import com.custom.enums.OrderStatus;
 import com.custom.marketdata.entity.OrderEntity;
+import com.custom.marketdata.feedbus.FeedBus;
 import com.custom.marketdata.manager.OrderManager;
 import com.custom.matchingengine.Order;
 import com.custom.matchingengine.message.Message;
 import com.custom.matchingengine.message.OrderMessage;
 import com.custom.middleware.kafka.KafkaConsumerThread;
+import com.custom.middleware.kafka.OffsetCommitTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
-import org.redisson.api.RTopic;
-import org.redisson.api.RedissonClient;
-import org.redisson.client.codec.StringCodec;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class OrderPersistenceThread extends KafkaConsumerThread<String, Message> implements ConsumerRebalanceListener {
     private final AppProperties appProperties;
     private final OrderManager orderManager;
-    private final RTopic orderTopic;
+    private final FeedBus feedBus;
+    private final ShardedWriter<OrderEntity> writer;
+    private final OffsetCommitTracker commitTracker;
+    /**
+     * Latest intermediate state of every order polled since the last flush, written behind as a single update
+     * per order
+     */
+    private final Map<String, OrderEntity> pendingOrders = new LinkedHashMap<>();
+    /**
+     * Writes submitted for the pending batch, which is done once all of them are
+     */
+    private final List<CompletableFuture<Void>> pendingWrites = new ArrayList<>();
+    private OffsetCommitTracker.Batch pendingBatch;
+    private long pendingSince;
 
     public OrderPersistenceThread(KafkaConsumer<String, Message> kafkaConsumer, OrderManager orderManager,
-                                  RedissonClient redissonClient,
+                                  FeedBus feedBus,
                                   AppProperties appProperties) {
         super(kafkaConsumer, logger);
         this.appProperties = appProperties;
         this.orderManager = orderManager;
-        this.orderTopic = redissonClient.getTopic("order", StringCodec.INSTANCE);
+        this.feedBus = feedBus;
+        this.writer = new ShardedWriter<>("Order", appProperties.getPersistenceWriterThreads(),
+                OrderEntity::getId, orderManager::updateAll);
+        this.commitTracker = new OffsetCommitTracker(appProperties.getPersistenceMaxInFlightBatches());
     }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> collection) {
-
+        flush();
+        // let the writes in flight finish so that the next owner of the partitions starts after them
+        var offsets = commitTracker.awaitCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
     }
 
     @Override
@@ -44,6 +65,11 @@ public class OrderPersistenceThread extends KafkaConsumerThread<String, Message>
 
     }
 
+    @Override
+    protected void doClose() {
+        writer.shutdown();
+    }
+
     @Override
     protected void doSubscribe() {
         consumer.subscribe(Collections.singletonList(appProperties.getMatchingEngineMessageTopic()), this);
@@ -51,19 +77,70 @@ public class OrderPersistenceThread extends KafkaConsumerThread<String, Message>
 
     @Override
     protected void doPoll() {
-        var records = consumer.poll(Duration.ofSeconds(5));
-        Map<String, OrderEntity> orders = new HashMap<>();
-        records.forEach(x -> {
-            Message message = x.value();
-            if (message instanceof OrderMessage orderMessage) {
-                OrderEntity orderEntity = orderEntity(orderMessage);
-                orders.put(orderEntity.getId(), orderEntity);
-                orderTopic.publishAsync(JSON.toJSONString(orderMessage));
+        long flushWindow = appProperties.getPersistenceOrderFlushWindowMs();
+        var records = consumer.poll(pendingBatch == null
+                ? Duration.ofSeconds(5)
+                : Duration.ofMillis(Math.max(1, pendingSince + flushWindow - System.currentTimeMillis())));
+        commitCompleted();
+
+        if (!records.isEmpty()) {
+            FeedBus.Batch feedBatch = feedBus.newBatch();
+            List<OrderEntity> terminalOrders = new ArrayList<>();
+            for (var record : records) {
+                Message message = record.value();
+                if (message instanceof OrderMessage orderMessage) {
+                    OrderEntity orderEntity = orderEntity(orderMessage);
+                    if (isTerminal(orderEntity.getStatus())) {
+                        // nothing supersedes a final state, it does not wait for the flush window
+                        pendingOrders.remove(orderEntity.getId());
+                        terminalOrders.add(orderEntity);
+                    } else {
+                        pendingOrders.put(orderEntity.getId(), orderEntity);
+                    }
+                    feedBatch.add(orderMessage);
+                }
+            }
+            feedBatch.publish();
+
+            if (pendingBatch == null) {
+                pendingBatch = commitTracker.begin(records);
+                pendingSince = System.currentTimeMillis();
+            } else {
+                commitTracker.append(pendingBatch, records);
             }
-        });
-        orderManager.saveAll(orders.values());
+            if (!terminalOrders.isEmpty()) {
+                pendingWrites.add(writer.writeAll(terminalOrders));
+            }
+        }
+
+        // intermediate states wait for the flush window to be superseded
+        if (pendingBatch != null && System.currentTimeMillis() - pendingSince >= flushWindow) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (pendingBatch == null) {
+            return;
+        }
+        OffsetCommitTracker.Batch batch = pendingBatch;
+        pendingWrites.add(writer.writeAll(new ArrayList<>(pendingOrders.values())));
+        CompletableFuture.allOf(pendingWrites.toArray(CompletableFuture<?>[]::new))
+                .whenComplete((r, e) -> batch.complete(e));
+        pendingWrites.clear();
+        pendingOrders.clear();
+        pendingBatch = null;
+    }
+
+    private boolean isTerminal(OrderStatus status) {
+        return status == OrderStatus.FILLED || status == OrderStatus.CANCELLED || status == OrderStatus.REJECTED;
+    }
 
-        consumer.commitAsync();
+    private void commitCompleted() {
+        var offsets = commitTracker.pollCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, null);
+        }
     }
 
     private OrderEntity orderEntity(OrderMessage message) {
@@ -81,7 +158,6 @@ public class OrderPersistenceThread extends KafkaConsumerThread<String, Message>
         orderEntity.setSide(order.getSide());
         orderEntity.setType(order.getType());
         orderEntity.setTime(order.getTime());
-        orderEntity.setCreatedAt(new Date());
         orderEntity.setFilledSize(order.getSize().subtract(order.getRemainingSize()));
         orderEntity.setExecutedValue(order.getFunds().subtract(order.getRemainingFunds()));
         return orderEntity;
@@ -0,0 +1,74 @@
+package com.custom.marketdata;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Splits a batch of entities into shards by key and writes the shards in parallel. Every shard has a single
+ * worker thread, so writes for the same key always happen in the order they were submitted.
+ */
+@Slf4j
+public class ShardedWriter<T> {
+    private final ExecutorService[] workers;
+    private final Function<T, String> keyFunction;
+    private final Consumer<Collection<T>> writer;
+
+    public ShardedWriter(String name, int shards, Function<T, String> keyFunction, Consumer<Collection<T>> writer) {
+        this.workers = new ExecutorService[shards];
+        for (int i = 0; i < shards; i++) {
+            String threadName = name + "-writer-" + i;
+            this.workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.keyFunction = keyFunction;
+        this.writer = writer;
+    }
+
+    /**
+     * Submits all items to their shards. The returned future completes once every shard has durably written its
+     * part; batches submitted later may still be in flight.
+     */
+    public CompletableFuture<Void> writeAll(Collection<T> items) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<List<T>> slices = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            slices.get(shardOf(keyFunction.apply(item))).add(item);
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            List<T> slice = slices.get(i);
+            if (!slice.isEmpty()) {
+                futures.add(CompletableFuture.runAsync(() -> writer.accept(slice), workers[i]));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new));
+    }
+
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private int shardOf(String key) {
+        return Math.floorMod(key.hashCode(), workers.length);
+    }
+}
@@ -1,20 +1,18 @@
 package com.custom.marketdata;
 
-import com.alibaba.fastjson.JSON;
 import com.custom.AppProperties;
 import com.custom.marketdata.entity.TradeEntity;
+import com.custom.marketdata.feedbus.FeedBus;
 import com.custom.marketdata.manager.TradeManager;
 import com.custom.matchingengine.Trade;
 import com.custom.matchingengine.message.Message;
 import com.custom.matchingengine.message.TradeMessage;
 import com.custom.middleware.kafka.KafkaConsumerThread;
+import com.custom.middleware.kafka.OffsetCommitTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
-import org.redisson.api.RTopic;
-import org.redisson.api.RedissonClient;
-import org.redisson.client.codec.StringCodec;
 
 import java.time.Duration;
 import java.util.Collection;
@@ -26,20 +24,29 @@ import java.util.Map;
 public class TradePersistenceThread extends KafkaConsumerThread<String, Message> implements ConsumerRebalanceListener {
     private final TradeManager tradeManager;
     private final AppProperties appProperties;
-    private final RTopic tradeTopic;
+    private final FeedBus feedBus;
+    private final ShardedWriter<TradeEntity> writer;
+    private final OffsetCommitTracker commitTracker;
 
     public TradePersistenceThread(KafkaConsumer<String, Message> consumer, TradeManager tradeManager,
-                                  RedissonClient redissonClient,
+                                  FeedBus feedBus,
                                   AppProperties appProperties) {
         super(consumer, logger);
         this.tradeManager = tradeManager;
         this.appProperties = appProperties;
-        this.tradeTopic = redissonClient.getTopic("trade", StringCodec.INSTANCE);
+        this.feedBus = feedBus;
+        this.writer = new ShardedWriter<>("Trade", appProperties.getPersistenceWriterThreads(),
+                TradeEntity::getProductId, tradeManager::saveAll);
+        this.commitTracker = new OffsetCommitTracker(appProperties.getPersistenceMaxInFlightBatches());
     }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> collection) {
-
+        // let the writes in flight finish so that the next owner of the partitions starts after them
+        var offsets = commitTracker.awaitCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
     }
 
     @Override
@@ -47,6 +54,11 @@ public class TradePersistenceThread extends KafkaConsumerThread<String, Message>
 
     }
 
+    @Override
+    protected void doClose() {
+        writer.shutdown();
+    }
+
     @Override
     protected void doSubscribe() {
         consumer.subscribe(Collections.singletonList(appProperties.getMatchingEngineMessageTopic()), this);
@@ -55,18 +67,31 @@ public class TradePersistenceThread extends KafkaConsumerThread<String, Message>
     @Override
     protected void doPoll() {
         var records = consumer.poll(Duration.ofSeconds(5));
+        commitCompleted();
+        if (records.isEmpty()) {
+            return;
+        }
+
         Map<String, TradeEntity> trades = new HashMap<>();
+        FeedBus.Batch feedBatch = feedBus.newBatch();
         records.forEach(x -> {
             Message message = x.value();
             if (message instanceof TradeMessage tradeMessage) {
                 TradeEntity tradeEntity = tradeEntity(tradeMessage);
                 trades.put(tradeEntity.getId(), tradeEntity);
-                tradeTopic.publishAsync(JSON.toJSONString(tradeMessage));
+                feedBatch.add(tradeMessage);
             }
         });
-        tradeManager.saveAll(trades.values());
+        feedBatch.publish();
+        OffsetCommitTracker.Batch batch = commitTracker.begin(records);
+        writer.writeAll(trades.values()).whenComplete((r, e) -> batch.complete(e));
+    }
 
-        consumer.commitAsync();
+    private void commitCompleted() {
+        var offsets = commitTracker.pollCommittable();
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, null);
+        }
     }
 
     private TradeEntity tradeEntity(TradeMessage message) {
@@ -0,0 +1,166 @@
+package com.custom.marketdata.binance.book;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+
+/**
+ * Local copy of one Binance order book, built from a REST snapshot and kept current by the depthUpdate diff stream.
+ * Follows the Binance rules for maintaining a local book: diffs are buffered until a snapshot arrives, the ones the
+ * snapshot already covers are dropped, and a gap in the update IDs discards the book until the next snapshot.
+ */
+@Slf4j
+public class BinanceBookMirror {
+    /**
+     * Diffs kept while waiting for a snapshot, 100 seconds of a 100ms stream
+     */
+    private static final int MAX_BUFFERED_UPDATES = 1000;
+
+    @Getter
+    private final String symbol;
+    private final PriceLadder bids = new PriceLadder(true);
+    private final PriceLadder asks = new PriceLadder(false);
+    private final ArrayDeque<DepthUpdate> buffered = new ArrayDeque<>();
+    /**
+     * The top levels as of the last drain
+     */
+    private final LevelList publishedBids = new LevelList();
+    private final LevelList publishedAsks = new LevelList();
+    private long lastUpdateId;
+    private boolean live;
+    private boolean snapshotPending;
+    private boolean dirty;
+    /**
+     * Set when the book was rebuilt from a snapshot, the next drain reports the whole window
+     */
+    private boolean resynced;
+
+    public BinanceBookMirror(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Applies a diff, or buffers it while the book is not synced. Returns true if the caller has to fetch a snapshot.
+     */
+    public synchronized boolean onUpdate(DepthUpdate update) {
+        if (!live) {
+            if (buffered.size() >= MAX_BUFFERED_UPDATES) {
+                buffered.poll();
+            }
+            buffered.add(update.copy());
+            return requestSnapshot();
+        }
+
+        if (update.getFinalUpdateId() <= lastUpdateId) {
+            return false;
+        }
+        if (update.getFirstUpdateId() > lastUpdateId + 1) {
+            logger.warn("{} depth gap: expected update {}, got {}, resyncing",
+                    symbol, lastUpdateId + 1, update.getFirstUpdateId());
+            discard();
+            buffered.add(update.copy());
+            return requestSnapshot();
+        }
+
+        apply(update);
+        return false;
+    }
+
+    /**
+     * Rebuilds the book from a snapshot and the buffered diffs. Returns false if the snapshot is older than the
+     * buffered diffs reach back, in which case the caller has to fetch another one.
+     */
+    public synchronized boolean onSnapshot(DepthUpdate snapshot) {
+        bids.clear();
+        asks.clear();
+        lastUpdateId = snapshot.getFinalUpdateId();
+        apply(snapshot);
+
+        DepthUpdate update;
+        while ((update = buffered.peek()) != null) {
+            if (update.getFinalUpdateId() > lastUpdateId) {
+                if (update.getFirstUpdateId() > lastUpdateId + 1) {
+                    logger.warn("{} snapshot {} is older than the buffered diffs, fetching another",
+                            symbol, snapshot.getFinalUpdateId());
+                    live = false;
+                    return false;
+                }
+                apply(update);
+            }
+            buffered.poll();
+        }
+
+        live = true;
+        resynced = true;
+        snapshotPending = false;
+        logger.info("{} book synced at update {}", symbol, lastUpdateId);
+        return true;
+    }
+
+    /**
+     * Drops the book, for instance because the stream reconnected. The next diff asks for a snapshot again.
+     */
+    public synchronized void reset() {
+        discard();
+        snapshotPending = false;
+    }
+
+    /**
+     * Fills {@code changes} with the levels of the top {@code depth} that changed since the previous drain, or with
+     * the whole window after a resync, since whatever was missed in between is unknown. Nothing is reported while
+     * the book is out of sync, so consumers keep their last view until it is synced again.
+     */
+    public synchronized boolean drainChanges(int depth, BookChanges changes) {
+        changes.clear();
+        if (!live || !dirty) {
+            return false;
+        }
+
+        if (resynced) {
+            bids.copyTop(depth, changes.getBids());
+            asks.copyTop(depth, changes.getAsks());
+            changes.setFull(true);
+            resynced = false;
+        } else {
+            bids.diffTop(publishedBids, depth, changes.getBids());
+            asks.diffTop(publishedAsks, depth, changes.getAsks());
+        }
+        bids.copyTop(depth, publishedBids);
+        asks.copyTop(depth, publishedAsks);
+        dirty = false;
+        return changes.isFull() || !changes.isEmpty();
+    }
+
+    public synchronized boolean isLive() {
+        return live;
+    }
+
+    private boolean requestSnapshot() {
+        if (snapshotPending) {
+            return false;
+        }
+        snapshotPending = true;
+        return true;
+    }
+
+    private void discard() {
+        live = false;
+        buffered.clear();
+        bids.clear();
+        asks.clear();
+    }
+
+    private void apply(DepthUpdate update) {
+        LevelList levels = update.getBids();
+        for (int i = 0; i < levels.size(); i++) {
+            bids.update(levels.priceAt(i), levels.sizeAt(i));
+        }
+        levels = update.getAsks();
+        for (int i = 0; i < levels.size(); i++) {
+            asks.update(levels.priceAt(i), levels.sizeAt(i));
+        }
+        lastUpdateId = update.getFinalUpdateId();
+        dirty = true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.custom.marketdata.binance.book;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Levels of the mirrored window that changed since the previous drain, size zero meaning the level is gone.
+ * After the book was (re)synced from a snapshot the changes are the whole window instead, flagged as full.
+ */
+@Getter
+public class BookChanges {
+    private final LevelList bids = new LevelList();
+    private final LevelList asks = new LevelList();
+    @Setter
+    private boolean full;
+
+    public void clear() {
+        bids.clear();
+        asks.clear();
+        full = false;
+    }
+
+    public boolean isEmpty() {
+        return bids.isEmpty() && asks.isEmpty();
+    }
+}
@@ -0,0 +1,110 @@
+package com.custom.marketdata.binance.book;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Streaming parser for Binance depth payloads. It reads the combined-stream envelope
+ * ({@code {"stream":"btcusdt@depth@100ms","data":{...}}}), a bare depthUpdate event and a REST depth snapshot
+ * ({@code {"lastUpdateId":...,"bids":[...],"asks":[...]}}) token by token into a reused {@link DepthUpdate},
+ * without building a tree.
+ */
+public class DepthMessageParser {
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public enum Kind {
+        UPDATE,
+        SNAPSHOT,
+    }
+
+    /**
+     * Parses the payload into {@code update}, returning what it is, or null if it is neither a diff nor a snapshot.
+     */
+    public Kind parse(String payload, DepthUpdate update) throws IOException {
+        update.clear();
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return parseObject(parser, update);
+        }
+    }
+
+    private Kind parseObject(JsonParser parser, DepthUpdate update) throws IOException {
+        Kind kind = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "stream":
+                    String stream = parser.getText();
+                    int at = stream.indexOf('@');
+                    update.setSymbol((at < 0 ? stream : stream.substring(0, at)).toLowerCase(Locale.ROOT));
+                    break;
+                case "data":
+                    if (value == JsonToken.START_OBJECT) {
+                        kind = parseObject(parser, update);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "e":
+                    if ("depthUpdate".equals(parser.getText())) {
+                        kind = Kind.UPDATE;
+                    }
+                    break;
+                case "s":
+                    if (update.getSymbol() == null) {
+                        update.setSymbol(parser.getText().toLowerCase(Locale.ROOT));
+                    }
+                    break;
+                case "U":
+                    update.setFirstUpdateId(parser.getLongValue());
+                    break;
+                case "u":
+                    update.setFinalUpdateId(parser.getLongValue());
+                    break;
+                case "lastUpdateId":
+                    update.setFirstUpdateId(parser.getLongValue());
+                    update.setFinalUpdateId(parser.getLongValue());
+                    kind = Kind.SNAPSHOT;
+                    break;
+                case "b":
+                case "bids":
+                    readLevels(parser, update.getBids());
+                    break;
+                case "a":
+                case "asks":
+                    readLevels(parser, update.getAsks());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return kind;
+    }
+
+    private void readLevels(JsonParser parser, LevelList levels) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        // [["price","qty"],...]
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            long price = ScaledDecimal.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength());
+            parser.nextToken();
+            long size = ScaledDecimal.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength());
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            levels.add(price, size);
+        }
+    }
+}
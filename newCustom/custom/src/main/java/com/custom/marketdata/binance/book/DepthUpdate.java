@@ -0,0 +1,36 @@
+package com.custom.marketdata.binance.book;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A parsed depthUpdate diff, or a REST depth snapshot, in which case both update IDs are its lastUpdateId.
+ * Sizes are absolute, a size of zero removes the level.
+ */
+@Getter
+@Setter
+public class DepthUpdate {
+    private String symbol;
+    private long firstUpdateId;
+    private long finalUpdateId;
+    private final LevelList bids = new LevelList();
+    private final LevelList asks = new LevelList();
+
+    public void clear() {
+        symbol = null;
+        firstUpdateId = 0;
+        finalUpdateId = 0;
+        bids.clear();
+        asks.clear();
+    }
+
+    public DepthUpdate copy() {
+        DepthUpdate copy = new DepthUpdate();
+        copy.symbol = symbol;
+        copy.firstUpdateId = firstUpdateId;
+        copy.finalUpdateId = finalUpdateId;
+        copy.bids.copyFrom(bids);
+        copy.asks.copyFrom(asks);
+        return copy;
+    }
+}
@@ -0,0 +1,58 @@
+package com.custom.marketdata.binance.book;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of (price, size) pairs in scaled longs, cleared and refilled rather than reallocated.
+ */
+public class LevelList {
+    private long[] prices;
+    private long[] sizes;
+    private int count;
+
+    public LevelList() {
+        this(16);
+    }
+
+    public LevelList(int initialCapacity) {
+        this.prices = new long[initialCapacity];
+        this.sizes = new long[initialCapacity];
+    }
+
+    public void add(long price, long size) {
+        if (count == prices.length) {
+            prices = Arrays.copyOf(prices, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        prices[count] = price;
+        sizes[count] = size;
+        count++;
+    }
+
+    public void copyFrom(LevelList other) {
+        clear();
+        for (int i = 0; i < other.count; i++) {
+            add(other.prices[i], other.sizes[i]);
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long priceAt(int index) {
+        return prices[index];
+    }
+
+    public long sizeAt(int index) {
+        return sizes[index];
+    }
+}
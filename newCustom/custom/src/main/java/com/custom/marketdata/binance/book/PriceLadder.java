@@ -0,0 +1,131 @@
+package com.custom.marketdata.binance.book;
+
+import java.util.Arrays;
+
+/**
+ * One side of an order book as parallel arrays of scaled prices and sizes, kept sorted best price first.
+ * Levels are found by binary search and inserted or removed in place.
+ */
+public class PriceLadder {
+    private final boolean descending;
+    private long[] prices;
+    private long[] sizes;
+    private int count;
+
+    public PriceLadder(boolean descending) {
+        this(descending, 256);
+    }
+
+    public PriceLadder(boolean descending, int initialCapacity) {
+        this.descending = descending;
+        this.prices = new long[initialCapacity];
+        this.sizes = new long[initialCapacity];
+    }
+
+    /**
+     * Sets the size at a price, a size of zero removes the level.
+     */
+    public void update(long price, long size) {
+        int index = indexOf(price);
+        if (index >= 0) {
+            if (size == 0) {
+                count--;
+                System.arraycopy(prices, index + 1, prices, index, count - index);
+                System.arraycopy(sizes, index + 1, sizes, index, count - index);
+            } else {
+                sizes[index] = size;
+            }
+            return;
+        }
+        if (size == 0) {
+            return;
+        }
+
+        index = -index - 1;
+        if (count == prices.length) {
+            prices = Arrays.copyOf(prices, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        System.arraycopy(prices, index, prices, index + 1, count - index);
+        System.arraycopy(sizes, index, sizes, index + 1, count - index);
+        prices[index] = price;
+        sizes[index] = size;
+        count++;
+    }
+
+    /**
+     * Returns the index of the price, or {@code -(insertionPoint + 1)} if there is no level at it.
+     */
+    public int indexOf(long price) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = prices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            if (precedes(midPrice, price)) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Whether price a comes before price b on this side, i.e. is the better price.
+     */
+    public boolean precedes(long a, long b) {
+        return descending ? a > b : a < b;
+    }
+
+    /**
+     * Appends to {@code changes} every level of the top {@code depth} that differs from {@code previous}, which
+     * holds the top levels as they were last published. Levels that left the window are reported with size zero.
+     * Both lists are walked once in price order.
+     */
+    public void diffTop(LevelList previous, int depth, LevelList changes) {
+        int newCount = Math.min(depth, count);
+        int i = 0;
+        int j = 0;
+        while (i < previous.size() || j < newCount) {
+            if (j == newCount || (i < previous.size() && precedes(previous.priceAt(i), prices[j]))) {
+                changes.add(previous.priceAt(i++), 0);
+            } else if (i == previous.size() || precedes(prices[j], previous.priceAt(i))) {
+                changes.add(prices[j], sizes[j]);
+                j++;
+            } else {
+                if (previous.sizeAt(i) != sizes[j]) {
+                    changes.add(prices[j], sizes[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    public void copyTop(int depth, LevelList target) {
+        target.clear();
+        for (int i = 0; i < Math.min(depth, count); i++) {
+            target.add(prices[i], sizes[i]);
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long priceAt(int index) {
+        return prices[index];
+    }
+
+    public long sizeAt(int index) {
+        return sizes[index];
+    }
+}
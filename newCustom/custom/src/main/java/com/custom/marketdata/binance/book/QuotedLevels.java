@@ -0,0 +1,67 @@
+package com.custom.marketdata.binance.book;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The mirrored window of one product at the product's price precision. Binance levels whose prices round down to
+ * the same price on the product are added up into one level, the level a single bot order rests at. The Binance
+ * levels are kept, so that a change to one of them can be turned into the new total at its price.
+ */
+public class QuotedLevels {
+    private final TreeMap<Long, Long> bids = new TreeMap<>();
+    private final TreeMap<Long, Long> asks = new TreeMap<>();
+    private final TreeSet<Long> changedPrices = new TreeSet<>();
+    private final BookChanges quoted = new BookChanges();
+
+    /**
+     * Applies the changes drained from the mirror and returns them at the product's precision: the whole window
+     * if the changes are the whole window, else the new total at every price a changed level rounds to, zero once
+     * nothing is left there. The returned changes are reused by the next call.
+     */
+    public BookChanges apply(BookChanges changes, LongUnaryOperator formatPrice) {
+        quoted.clear();
+        quoted.setFull(changes.isFull());
+        apply(bids, changes.getBids(), changes.isFull(), true, formatPrice, quoted.getBids());
+        apply(asks, changes.getAsks(), changes.isFull(), false, formatPrice, quoted.getAsks());
+        return quoted;
+    }
+
+    private void apply(TreeMap<Long, Long> levels, LevelList changes, boolean full, boolean descending,
+                       LongUnaryOperator formatPrice, LevelList target) {
+        if (full) {
+            levels.clear();
+        }
+        changedPrices.clear();
+        for (int i = 0; i < changes.size(); i++) {
+            long price = changes.priceAt(i);
+            if (changes.sizeAt(i) > 0) {
+                levels.put(price, changes.sizeAt(i));
+            } else {
+                levels.remove(price);
+            }
+            changedPrices.add(formatPrice.applyAsLong(price));
+        }
+        // best price first, like the mirror's changes
+        for (long price : descending ? changedPrices.descendingSet() : changedPrices) {
+            long total = total(levels, price, formatPrice);
+            if (total > 0 || !full) {
+                target.add(price, total);
+            }
+        }
+    }
+
+    private static long total(TreeMap<Long, Long> levels, long price, LongUnaryOperator formatPrice) {
+        long total = 0;
+        // the levels rounding down to a price are the ones from it up to the next price
+        for (Map.Entry<Long, Long> level : levels.tailMap(price, true).entrySet()) {
+            if (formatPrice.applyAsLong(level.getKey()) != price) {
+                break;
+            }
+            total += level.getValue();
+        }
+        return total;
+    }
+}
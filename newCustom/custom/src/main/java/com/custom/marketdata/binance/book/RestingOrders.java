@@ -0,0 +1,29 @@
+package com.custom.marketdata.binance.book;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The bot's resting orders on one product, one order per price level, kept best price first on each side.
+ */
+@Getter
+public class RestingOrders {
+    private final TreeMap<Long, RestingOrder> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, RestingOrder> asks = new TreeMap<>();
+    /**
+     * Orders found at a level that already had one, to be cancelled
+     */
+    private final List<String> strayOrderIds = new ArrayList<>();
+
+    @Value
+    public static class RestingOrder {
+        String orderId;
+        long price;
+        long size;
+    }
+}
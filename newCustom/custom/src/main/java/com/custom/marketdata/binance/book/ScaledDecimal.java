@@ -0,0 +1,65 @@
+package com.custom.marketdata.binance.book;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimals as longs with {@value #SCALE} fraction digits, the precision Binance quotes prices and
+ * quantities with. Parsing works on the characters of a JSON token, so no String or BigDecimal is created per level.
+ */
+public final class ScaledDecimal {
+    public static final int SCALE = 8;
+
+    private ScaledDecimal() {
+    }
+
+    public static long parse(String text) {
+        char[] chars = text.toCharArray();
+        return parse(chars, 0, chars.length);
+    }
+
+    public static long parse(char[] chars, int offset, int length) {
+        if (length == 0) {
+            throw new NumberFormatException("empty decimal");
+        }
+        long value = 0;
+        int fractionDigits = -1;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("invalid decimal: " + new String(chars, offset, length));
+            }
+            if (fractionDigits >= 0) {
+                if (fractionDigits == SCALE) {
+                    if (c != '0') {
+                        throw new NumberFormatException("more than " + SCALE + " decimals: " +
+                                new String(chars, offset, length));
+                    }
+                    continue;
+                }
+                fractionDigits++;
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+        }
+        for (int i = Math.max(fractionDigits, 0); i < SCALE; i++) {
+            value = Math.multiplyExact(value, 10);
+        }
+        return value;
+    }
+
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.DOWN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE).stripTrailingZeros();
+    }
+
+    public static String toPlainString(long value) {
+        return toBigDecimal(value).toPlainString();
+    }
+}
@@ -9,8 +9,32 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class BinanceOrderbookConfig {
     private boolean enabled = false;
-    private int syncInterval = 5000;
+    /**
+     * Delay from the first book change to the sync of the bot's orders, the changes arriving meanwhile are synced
+     * with it. Later changes do not push the sync back, so a book that keeps changing is still synced
+     */
+    private long syncDebounceMs = 20;
+    /**
+     * Minimum time between two syncs of the same product
+     */
+    private long syncMinIntervalMs = 250;
     private int productRefreshInterval = 300000;
     private String websocketUrl = "wss://stream.binance.com/stream?streams=";
     private String botUserId = "000000";
+    /**
+     * Credentials of the user the bot places its orders as, resolved once at first use
+     */
+    private String botEmail = "test@test.com";
+    private String botPassword = "12345678";
+    /**
+     * Number of levels per side mirrored from each Binance book
+     */
+    private int depthLevels = 20;
+    private String depthSnapshotUrl = "https://api.binance.com/api/v3/depth";
+    private int depthSnapshotLimit = 1000;
+    /**
+     * Feed the book mirrors from this file instead of the live stream, one combined-stream message per line.
+     * Snapshots are lines with a "symbol@snapshot" stream whose data is the REST depth response
+     */
+    private String replayFile;
 }
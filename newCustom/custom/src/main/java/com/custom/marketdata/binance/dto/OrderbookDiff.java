@@ -1,20 +1,49 @@
 package com.custom.marketdata.binance.dto;
 
-import lombok.Value;
+import com.custom.marketdata.binance.book.LevelList;
+import lombok.Getter;
 
-import java.math.BigDecimal;
-import java.util.Map;
-import java.util.Set;
-
-@Value
+/**
+ * Difference between the bot's resting orders and a reference book, per side, in scaled prices and sizes.
+ * Cleared and refilled between comparisons.
+ */
+@Getter
 public class OrderbookDiff {
-    Map<String, BigDecimal> bidsToAdd;
-    Map<String, BigDecimal> asksToAdd;
-    Set<String> bidsToRemove;
-    Set<String> asksToRemove;
-    
+    private final SideDiff bids = new SideDiff();
+    private final SideDiff asks = new SideDiff();
+
+    public void clear() {
+        bids.clear();
+        asks.clear();
+    }
+
     public boolean hasChanges() {
-        return !bidsToAdd.isEmpty() || !asksToAdd.isEmpty() || 
-               !bidsToRemove.isEmpty() || !asksToRemove.isEmpty();
+        return !bids.isEmpty() || !asks.isEmpty();
+    }
+
+    @Getter
+    public static class SideDiff {
+        /**
+         * Reference levels without a resting order, with the reference size
+         */
+        private final LevelList adds = new LevelList();
+        /**
+         * Levels whose resting order has another size than the reference, with the reference size
+         */
+        private final LevelList resizes = new LevelList();
+        /**
+         * Resting orders at levels the reference does not have, with the resting size
+         */
+        private final LevelList removes = new LevelList();
+
+        public void clear() {
+            adds.clear();
+            resizes.clear();
+            removes.clear();
+        }
+
+        public boolean isEmpty() {
+            return adds.isEmpty() && resizes.isEmpty() && removes.isEmpty();
+        }
     }
 }
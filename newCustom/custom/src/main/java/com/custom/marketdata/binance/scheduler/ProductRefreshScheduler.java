@@ -2,6 +2,7 @@ package com.custom.marketdata.binance.scheduler;
 
 import com.custom.marketdata.binance.config.BinanceOrderbookConfig;
 import com.custom.marketdata.binance.mapper.ProductSymbolMapper;
+import com.custom.marketdata.binance.service.BotOrderGateway;
 import com.custom.marketdata.binance.service.WebSocketConnectionService;
 
 import org.slf4j.Logger;
@@ -24,6 +25,9 @@ public class ProductRefreshScheduler {
     
     @Autowired
     private WebSocketConnectionService connectionService;
+
+    @Autowired
+    private BotOrderGateway botOrderGateway;
     
     @Scheduled(fixedRateString = "${binance.orderbook.product.refresh.interval}")
     public void refreshProductMapping() {
@@ -39,6 +43,7 @@ public class ProductRefreshScheduler {
             logger.info("Product mapping changed. Previous: {} products, New: {} products. Reconnecting WebSocket...", 
                 currentMapping.size(), newMapping.size());
             connectionService.disconnect();
+            botOrderGateway.refreshProducts();
             connectionService.initialize(newMapping);
         } else {
             logger.debug("Product mapping unchanged: {} products", currentMapping.size());
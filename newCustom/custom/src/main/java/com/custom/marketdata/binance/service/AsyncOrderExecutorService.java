@@ -1,393 +1,293 @@
 package com.custom.marketdata.binance.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.function.Consumer;
 
 /**
- * Thread-safe async order execution service for batching and queueing operations.
- * This service helps prevent database bottlenecks by batching operations and
- * using async processing queues.
+ * Runs the bot's order operations off the caller's thread, one lane per product. The operations of a product run
+ * one at a time, in submission order, so they never need a lock against each other. Lanes with work take turns
+ * on a fixed number of workers, one operation per turn, so a busy product cannot hold back the others.
+ * <p>
+ * An operation submitted with {@link #submitLatestOperation} supersedes the same operation if that is the last
+ * one waiting in its lane, instead of queueing behind it; only the latest one runs.
  */
 @Service
 public class AsyncOrderExecutorService {
     private static final Logger logger = LoggerFactory.getLogger(AsyncOrderExecutorService.class);
 
-    // Configuration constants - optimized for aggressive queue draining
-    private static final int QUEUE_CAPACITY = 50000;
-    private static final int BATCH_SIZE = 500;
-    private static final long BATCH_TIMEOUT_MS = 10;
-    private static final long KEEP_ALIVE_TIME = 60L;
-    // Adaptive thread pool/drain thread settings
-    private static final int MIN_CORE_POOL_SIZE = 8;
-    private static final int MAX_CORE_POOL_SIZE = 32;
-    private static final int MIN_DRAIN_THREADS = 8;
-    private static final int MAX_DRAIN_THREADS = 32;
-    private static final int ADAPTIVE_CHECK_INTERVAL_MS = 2000;
-    private static final int QUEUE_HIGH_THRESHOLD = BATCH_SIZE * 8;
-    private static final int QUEUE_LOW_THRESHOLD = BATCH_SIZE * 2;
-
-    //[ADAPTIVE] Scaling up: corePoolSize=12 maxPoolSize=32 drainThreads=10
-    // Thread-safe components
-    private final BlockingQueue<OrderOperation> operationQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
-    // Use a SynchronousQueue so the ThreadPoolExecutor will create new threads up to
-    // MAX_POOL_SIZE when under load instead of queuing tasks indefinitely in an
-    // unbounded LinkedBlockingQueue (which effectively capped threads to CORE_POOL_SIZE).
-    private final ThreadPoolExecutor executorService = new ThreadPoolExecutor(
-            MIN_CORE_POOL_SIZE, MAX_CORE_POOL_SIZE, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
-            new SynchronousQueue<Runnable>(),
-            r -> {
-                Thread t = new Thread(r, "async-order-executor-" + System.currentTimeMillis());
-                t.setDaemon(true);
-                return t;
-            },
-            new ThreadPoolExecutor.CallerRunsPolicy());
-
-    // Metrics
-    private final AtomicInteger queueSize = new AtomicInteger(0);
-    private final AtomicLong processedOperations = new AtomicLong(0);
-    private final AtomicLong droppedOperations = new AtomicLong(0);
-
-    // Batch processing control
-    private volatile boolean running = true;
-
-    // Multiple drain threads for aggressive queue processing
-    private ScheduledExecutorService[] drainThreads = new ScheduledExecutorService[MIN_DRAIN_THREADS];
-    private int currentDrainThreads = MIN_DRAIN_THREADS;
-    private final ScheduledExecutorService adaptiveMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "adaptive-monitor");
-        t.setDaemon(true);
-        return t;
-    });
-    // Throttle scaling: minimum interval between scale actions (ms)
-    private static final long MIN_SCALE_INTERVAL_MS = 5000;
-    private volatile long lastScaleTime = 0L;
-
-    @PostConstruct
-    public void initialize() {
-        logger.info("Initializing AsyncOrderExecutorService with {} drain threads, batch size: {}, queue capacity: {}",
-                currentDrainThreads, BATCH_SIZE, QUEUE_CAPACITY);
-        startDrainThreads(currentDrainThreads);
-        adaptiveMonitor.scheduleWithFixedDelay(this::adaptiveTune, ADAPTIVE_CHECK_INTERVAL_MS, ADAPTIVE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
-    }
+    private static final int MAX_PENDING_OPERATIONS = 50000;
+    private static final int WORKER_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
 
-    private synchronized void startDrainThreads(int numThreads) {
-        drainThreads = new ScheduledExecutorService[numThreads];
-        for (int i = 0; i < numThreads; i++) {
-            final int threadId = i;
-            drainThreads[i] = Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "batch-drain-" + threadId);
-                t.setDaemon(true);
-                return t;
-            });
-            drainThreads[i].scheduleWithFixedDelay(this::processBatch,
-                    threadId * 2, BATCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        }
-        currentDrainThreads = numThreads;
-    }
+    private final Map<String, Lane> laneByProductId = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingOperations = new AtomicInteger();
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
 
-    // private synchronized void stopDrainThreads() {
-    //     if (drainThreads != null) {
-    //         for (ScheduledExecutorService s : drainThreads) {
-    //             if (s != null) {
-    //                 s.shutdownNow();
-    //             }
-    //         }
-    //     }
-    // }
-private synchronized void stopDrainThreads() {
-    if (drainThreads != null) {
-        for (ScheduledExecutorService s : drainThreads) {
-            if (s != null) {
-                s.shutdown(); // Use shutdown() instead of shutdownNow()
-                try {
-                    s.awaitTermination(5, TimeUnit.SECONDS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
-    }
-}
-    private void adaptiveTune() {
-        int qSize = queueSize.get();
-        int curCore = executorService.getCorePoolSize();
-        int curMax = executorService.getMaximumPoolSize();
-        int curDrains = currentDrainThreads;
-        long now = System.currentTimeMillis();
-
-        // Throttle scaling: only allow scaling if enough time has passed
-        if (now - lastScaleTime < MIN_SCALE_INTERVAL_MS) {
-            return;
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "async-order-executor-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
         }
+    });
+    private final Counter conflatedCounter;
+    private final Counter rejectedCounter;
+    private volatile boolean running = true;
 
-        // If queue is high, scale up
-        if (qSize > QUEUE_HIGH_THRESHOLD && curCore < MAX_CORE_POOL_SIZE) {
-            int newCore = Math.min(curCore + 4, MAX_CORE_POOL_SIZE);
-            int newMax = Math.min(curMax + 4, MAX_CORE_POOL_SIZE);
-            executorService.setCorePoolSize(newCore);
-            executorService.setMaximumPoolSize(newMax);
-            int newDrains = Math.min(curDrains + 2, MAX_DRAIN_THREADS);
-            if (newDrains > curDrains) {
-                logger.info("[ADAPTIVE] Scaling up: corePoolSize={} maxPoolSize={} drainThreads={}", newCore, newMax, newDrains);
-                stopDrainThreads();
-                startDrainThreads(newDrains);
-            }
-            lastScaleTime = now;
-        }
-        // If queue is low, scale down
-        else if (qSize < QUEUE_LOW_THRESHOLD && curCore > MIN_CORE_POOL_SIZE) {
-            int newCore = Math.max(curCore - 2, MIN_CORE_POOL_SIZE);
-            int newMax = Math.max(curMax - 2, MIN_CORE_POOL_SIZE);
-            executorService.setCorePoolSize(newCore);
-            executorService.setMaximumPoolSize(newMax);
-            int newDrains = Math.max(curDrains - 1, MIN_DRAIN_THREADS);
-            if (newDrains < curDrains) {
-                logger.info("[ADAPTIVE] Scaling down: corePoolSize={} maxPoolSize={} drainThreads={}", newCore, newMax, newDrains);
-                stopDrainThreads();
-                startDrainThreads(newDrains);
-            }
-            lastScaleTime = now;
-        }
+    public AsyncOrderExecutorService() {
+        Gauge.builder("gbe.order-executor.pending", pendingOperations, AtomicInteger::get)
+                .register(Metrics.globalRegistry);
+        this.conflatedCounter = Counter.builder("gbe.order-executor.operation.conflated")
+                .register(Metrics.globalRegistry);
+        this.rejectedCounter = Counter.builder("gbe.order-executor.operation.rejected")
+                .register(Metrics.globalRegistry);
+        logger.info("Initializing AsyncOrderExecutorService with {} workers, max pending operations: {}",
+                WORKER_THREADS, MAX_PENDING_OPERATIONS);
     }
 
     /**
-     * Submits an order operation for async processing
+     * Queues an operation behind the other operations of its product.
      */
     public CompletableFuture<Void> submitOrderOperation(String productId, String operation,
                                                         Consumer<String> executor) {
+        return submit(productId, operation, executor, false);
+    }
+
+    /**
+     * Queues an operation whose latest submission is all that matters, e.g. a sync that reads the state to sync
+     * to when it runs. If the same operation is the last one waiting in the product's lane, it is replaced in
+     * place and its future completes together with the replacing one.
+     */
+    public CompletableFuture<Void> submitLatestOperation(String productId, String operation,
+                                                         Consumer<String> executor) {
+        return submit(productId, operation, executor, true);
+    }
+
+    private CompletableFuture<Void> submit(String productId, String operation, Consumer<String> executor,
+                                           boolean conflate) {
         if (!running) {
             return CompletableFuture.failedFuture(
                     new IllegalStateException("AsyncOrderExecutorService is shutting down"));
         }
+        Lane lane = laneByProductId.computeIfAbsent(productId, Lane::new);
+        return lane.submit(new OrderOperation(operation, executor), conflate);
+    }
 
-        OrderOperation orderOp = new OrderOperation(productId, operation, executor);
-
-        boolean queued = operationQueue.offer(orderOp);
-        if (!queued) {
-            droppedOperations.incrementAndGet();
-            logger.warn("Order operation queue is full. Dropping operation for product: {}", productId);
-            return CompletableFuture.failedFuture(
-                    new RejectedExecutionException("Order operation queue is full"));
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Shutting down AsyncOrderExecutorService, {} operation(s) pending", pendingOperations.get());
+        running = false;
+        // the operations already queued still run, each lane hands itself back to the workers until it is empty
+        for (Lane lane : laneByProductId.values()) {
+            lane.awaitIdle(TimeUnit.SECONDS.toNanos(10));
         }
-
-        int currentQueueSize = queueSize.incrementAndGet();
-
-        // Trigger immediate processing if queue is getting large (adaptive processing)
-        if (currentQueueSize > BATCH_SIZE * 2) {
-            logger.debug("Queue size {} exceeds threshold, triggering immediate batch processing", currentQueueSize);
-            // Trigger an immediate batch process on one of the drain threads
-            if (drainThreads[0] != null && !drainThreads[0].isShutdown()) {
-                drainThreads[0].execute(this::processBatch);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Executor service did not terminate gracefully, forcing shutdown");
+                workers.shutdownNow();
             }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while waiting for executor service to terminate");
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-
-        return orderOp.getFuture();
+        logger.info("AsyncOrderExecutorService shutdown complete, {} operation(s) left", pendingOperations.get());
     }
 
     /**
-     * Process operations in batches for better performance
+     * The operations of one product, run one at a time. A lane with work is either waiting in the workers' queue
+     * or running on a worker, never both.
      */
-    private void processBatch() {
-        if (!running || operationQueue.isEmpty()) {
-            return;
-        }
-
-        // Adaptive batch size - larger when queue is backed up
-        int currentQueueSize = queueSize.get();
-        int adaptiveBatchSize = Math.min(BATCH_SIZE * 4, Math.max(BATCH_SIZE, currentQueueSize / 2));
-
-        List<OrderOperation> batch = new ArrayList<>(adaptiveBatchSize);
-
-        // Drain operations from queue up to adaptive batch size
-        operationQueue.drainTo(batch, adaptiveBatchSize);
+    private class Lane {
+        private final String productId;
+        private final ArrayDeque<OrderOperation> operations = new ArrayDeque<>();
+        private final Timer queueWaitTimer;
+        private final Timer executionTimer;
+        private boolean scheduled;
 
-        if (batch.isEmpty()) {
-            return;
+        private Lane(String productId) {
+            this.productId = productId;
+            this.queueWaitTimer = Timer.builder("gbe.order-executor.queue.wait")
+                    .tag("product", productId)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry);
+            this.executionTimer = Timer.builder("gbe.order-executor.execution")
+                    .tag("product", productId)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry);
         }
 
-        queueSize.addAndGet(-batch.size());
-
-        logger.debug("Processing batch of {} order operations (adaptive size: {}, queue: {})",
-                batch.size(), adaptiveBatchSize, currentQueueSize);
-
-        // Record a dequeued timestamp for each operation so we can measure
-        // queue time (enqueue -> drained) separate from executor wait (drained -> exec start)
-        final long batchDequeuedTime = System.nanoTime();
-        for (OrderOperation op : batch) {
-            op.setDequeuedTime(batchDequeuedTime);
+        private CompletableFuture<Void> submit(OrderOperation operation, boolean conflate) {
+            synchronized (this) {
+                if (conflate) {
+                    // only the tail, superseding an earlier one would run the newer work ahead of what was
+                    // submitted in between
+                    OrderOperation last = operations.peekLast();
+                    if (last != null && last.name.equals(operation.name)) {
+                        last.supersede(operation);
+                        conflatedCounter.increment();
+                        return operation.future;
+                    }
+                }
+                if (pendingOperations.incrementAndGet() > MAX_PENDING_OPERATIONS) {
+                    pendingOperations.decrementAndGet();
+                    rejectedCounter.increment();
+                    logger.warn("Order operation queue is full. Dropping {} for product: {}",
+                            operation.name, productId);
+                    return CompletableFuture.failedFuture(
+                            new RejectedExecutionException("Order operation queue is full"));
+                }
+                operations.add(operation);
+                if (scheduled) {
+                    return operation.future;
+                }
+                scheduled = true;
+            }
+            workers.execute(this::runNext);
+            return operation.future;
         }
 
-        // Submit each operation to the executor for execution.
-        // We intentionally use executorService.execute to avoid extra CompletableFuture scheduling
-        for (OrderOperation op : batch) {
-            executeOperation(op);
-        }
-    }
-
-    /**
-     * Execute a single order operation
-     */
-    private void executeOperation(OrderOperation operation) {
-        // Submit work to executor; CallerRunsPolicy will execute in caller thread if pool is saturated
-        executorService.execute(() -> {
-            long execStart = System.nanoTime(); // actual execution start time
-
+        /**
+         * Runs the oldest operation, then goes to the back of the workers' queue if there is more to do.
+         */
+        private void runNext() {
+            OrderOperation operation;
+            synchronized (this) {
+                operation = operations.poll();
+            }
             try {
-                long dequeued = operation.getDequeuedTime() > 0 ? operation.getDequeuedTime() : execStart;
-                long queueTimeNs = dequeued - operation.getEnqueueTime();
-                long executorQueueWaitNs = execStart - dequeued;
-
-                logger.debug("TIME_B: Operation dequeued for {} after {} ns in queue",
-                        operation.getProductId(), queueTimeNs);
-
-                if (executorQueueWaitNs > 0) {
-                    logger.debug("TIME_B_EXEC_WAIT: Operation {} waited {} ns between drain and execution start",
-                            operation.getProductId(), executorQueueWaitNs);
+                if (operation != null) {
+                    pendingOperations.decrementAndGet();
+                    operation.run(productId, queueWaitTimer, executionTimer);
                 }
-
-                operation.getExecutor().accept(operation.getProductId());
-                operation.complete();
-                processedOperations.incrementAndGet();
-
-                long completeTime = System.nanoTime();
-                logger.debug("TIME_B_END: Operation completed for {} in {} ns",
-                        operation.getProductId(), (completeTime - execStart));
-
-            } catch (Exception e) {
-                logger.error("Error executing order operation for product {}: {}",
-                        operation.getProductId(), e.getMessage(), e);
-                operation.completeExceptionally(e);
+            } finally {
+                handOn();
             }
-        });
-    }
-
-    /**
-     * Get current queue metrics
-     */
-    public QueueMetrics getMetrics() {
-        return new QueueMetrics(
-                queueSize.get(),
-                processedOperations.get(),
-                droppedOperations.get(),
-                operationQueue.remainingCapacity()
-        );
-    }
-
-    /**
-     * Force process all remaining operations (useful for shutdown)
-     */
-    public void flushQueue() {
-        logger.info("Flushing remaining {} operations from queue", queueSize.get());
+        }
 
-        while (!operationQueue.isEmpty()) {
-            processBatch();
+        /**
+         * Gives up the lane if it is empty, else puts it back in the workers' queue.
+         */
+        private void handOn() {
+            synchronized (this) {
+                if (operations.isEmpty()) {
+                    scheduled = false;
+                    notifyAll();
+                    return;
+                }
+            }
             try {
-                Thread.sleep(100); // Small delay to allow processing
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                workers.execute(this::runNext);
+            } catch (RejectedExecutionException e) {
+                failAll(e);
             }
         }
-    }
-
-    @PreDestroy
-    public void shutdown() {
-        logger.info("Shutting down AsyncOrderExecutorService");
-        running = false;
-
-        // Stop adaptive monitor
-        adaptiveMonitor.shutdownNow();
-
-        // Flush remaining operations
-        flushQueue();
 
-        // Shutdown drain threads
-        stopDrainThreads();
-
-        // Shutdown executor service
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                logger.warn("Executor service did not terminate gracefully, forcing shutdown");
-                executorService.shutdownNow();
+        private void failAll(Exception e) {
+            List<OrderOperation> failed;
+            synchronized (this) {
+                failed = new ArrayList<>(operations);
+                operations.clear();
+                scheduled = false;
+                notifyAll();
+            }
+            pendingOperations.addAndGet(-failed.size());
+            for (OrderOperation operation : failed) {
+                operation.fail(e);
             }
-        } catch (InterruptedException e) {
-            logger.warn("Interrupted while waiting for executor service to terminate");
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
         }
 
-        QueueMetrics finalMetrics = getMetrics();
-        logger.info("AsyncOrderExecutorService shutdown complete. Final metrics: {}", finalMetrics);
+        private synchronized void awaitIdle(long timeoutNanos) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            try {
+                while (scheduled) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        logger.warn("{} operation(s) of {} did not run before shutdown", operations.size(),
+                                productId);
+                        return;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
-     * Represents an order operation to be executed asynchronously
+     * An operation waiting in a lane, along with the futures of the operations it superseded
      */
     private static class OrderOperation {
-        private final String productId;
-        private final String operation;
-        private final Consumer<String> executor;
-        private final CompletableFuture<Void> future;
-        private final long enqueueTime;
-        // Set when the batch drains this operation from the queue.
-        private volatile long dequeuedTime = 0L;
-        public OrderOperation(String productId, String operation, Consumer<String> executor) {
-            this.productId = productId;
-            this.operation = operation;
+        private final String name;
+        private final long enqueueTime = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Consumer<String> executor;
+        private List<CompletableFuture<Void>> supersededFutures;
+
+        private OrderOperation(String name, Consumer<String> executor) {
+            this.name = name;
             this.executor = executor;
-            this.future = new CompletableFuture<>();
-            this.enqueueTime = System.nanoTime();
         }
 
-        public long getDequeuedTime() { return dequeuedTime; }
-        public void setDequeuedTime(long dequeuedTime) { this.dequeuedTime = dequeuedTime; }
-
-        public String getProductId() { return productId; }
-        public String getOperation() { return operation; }
-        public Consumer<String> getExecutor() { return executor; }
-        public CompletableFuture<Void> getFuture() { return future; }
-        public long getEnqueueTime() { return enqueueTime; }
-
-        public void complete() { future.complete(null); }
-        public void completeExceptionally(Throwable ex) { future.completeExceptionally(ex); }
-    }
-
-    /**
-     * Queue metrics for monitoring
-     */
-    public static class QueueMetrics {
-        private final int currentQueueSize;
-        private final long totalProcessed;
-        private final long totalDropped;
-        private final int remainingCapacity;
+        /**
+         * Takes over the work of a newer submission, keeping this operation's place in the lane.
+         */
+        private void supersede(OrderOperation newer) {
+            if (supersededFutures == null) {
+                supersededFutures = new ArrayList<>(1);
+            }
+            supersededFutures.add(newer.future);
+            executor = newer.executor;
+        }
 
-        public QueueMetrics(int currentQueueSize, long totalProcessed, long totalDropped, int remainingCapacity) {
-            this.currentQueueSize = currentQueueSize;
-            this.totalProcessed = totalProcessed;
-            this.totalDropped = totalDropped;
-            this.remainingCapacity = remainingCapacity;
+        private void run(String productId, Timer queueWaitTimer, Timer executionTimer) {
+            long start = System.nanoTime();
+            queueWaitTimer.record(start - enqueueTime, TimeUnit.NANOSECONDS);
+            Throwable failure = null;
+            try {
+                executor.accept(productId);
+            } catch (Throwable e) {
+                // an Error too, its future would otherwise never complete
+                logger.error("Error executing {} for product {}: {}", name, productId, e.getMessage(), e);
+                failure = e;
+            } finally {
+                executionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (failure != null) {
+                fail(failure);
+            } else {
+                complete();
+            }
         }
 
-        public int getCurrentQueueSize() { return currentQueueSize; }
-        public long getTotalProcessed() { return totalProcessed; }
-        public long getTotalDropped() { return totalDropped; }
-        public int getRemainingCapacity() { return remainingCapacity; }
+        private void complete() {
+            future.complete(null);
+            if (supersededFutures != null) {
+                supersededFutures.forEach(f -> f.complete(null));
+            }
+        }
 
-        @Override
-        public String toString() {
-            return String.format("QueueMetrics{queueSize=%d, processed=%d, dropped=%d, remaining=%d}",
-                    currentQueueSize, totalProcessed, totalDropped, remainingCapacity);
+        private void fail(Throwable e) {
+            future.completeExceptionally(e);
+            if (supersededFutures != null) {
+                supersededFutures.forEach(f -> f.completeExceptionally(e));
+            }
         }
     }
 }
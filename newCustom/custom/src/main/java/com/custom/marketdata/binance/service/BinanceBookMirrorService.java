@@ -0,0 +1,210 @@
+package com.custom.marketdata.binance.service;
+
+import com.custom.marketdata.binance.book.BinanceBookMirror;
+import com.custom.marketdata.binance.book.BookChanges;
+import com.custom.marketdata.binance.book.DepthMessageParser;
+import com.custom.marketdata.binance.book.DepthUpdate;
+import com.custom.marketdata.binance.config.BinanceOrderbookConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link BinanceBookMirror} per symbol current from the depth diff stream, fetching REST snapshots
+ * whenever a book has to be (re)synced. In replay mode the stream and the snapshots both come from a file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BinanceBookMirrorService {
+    private static final long SNAPSHOT_RETRY_DELAY_MS = 1000;
+
+    private final BinanceOrderbookConfig config;
+    private final Map<String, BinanceBookMirror> mirrors = new ConcurrentHashMap<>();
+    private final DepthMessageParser parser = new DepthMessageParser();
+    private final DepthUpdate update = new DepthUpdate();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    private final OkHttpClient httpClient = new OkHttpClient();
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "binance-snapshot-retry");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Counter resyncCounter = Counter.builder("gbe.binance.depth.snapshots.requested")
+            .register(Metrics.globalRegistry);
+    private volatile boolean replaying;
+
+    /**
+     * Handles one message of the depth stream. Messages of a connection arrive one at a time.
+     */
+    public synchronized void onMessage(String payload) {
+        try {
+            DepthMessageParser.Kind kind = parser.parse(payload, update);
+            if (kind == null || update.getSymbol() == null) {
+                return;
+            }
+
+            BinanceBookMirror mirror = mirrors.computeIfAbsent(update.getSymbol(), BinanceBookMirror::new);
+            if (kind == DepthMessageParser.Kind.SNAPSHOT) {
+                mirror.onSnapshot(update);
+            } else if (mirror.onUpdate(update)) {
+                requestSnapshot(mirror);
+            }
+            if (mirror.isLive()) {
+                fireChanged(mirror.getSymbol());
+            }
+        } catch (Exception e) {
+            logger.error("Error processing depth message: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Registers a callback invoked with the symbol whenever its book changed. Callbacks run on the thread that
+     * applied the change and must not block.
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Changes in the top {@code depthLevels} of the symbol's book since the previous call.
+     */
+    public boolean drainChanges(String symbol, BookChanges changes) {
+        BinanceBookMirror mirror = mirrors.get(symbol);
+        if (mirror == null) {
+            changes.clear();
+            return false;
+        }
+        return mirror.drainChanges(config.getDepthLevels(), changes);
+    }
+
+    /**
+     * Drops every book, the stream they were built from is gone.
+     */
+    public void resetAll() {
+        mirrors.values().forEach(BinanceBookMirror::reset);
+    }
+
+    /**
+     * Feeds the recorded messages of a replay file through the mirrors, as fast as they can be applied. Returns
+     * the thread reading the file, which ends with it.
+     */
+    public Thread replay(Path file) {
+        replaying = true;
+        Thread thread = new Thread(() -> {
+            logger.info("Replaying Binance depth messages from {}", file);
+            long count = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        onMessage(line);
+                        count++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error reading replay file {}: {}", file, e.getMessage(), e);
+            }
+            logger.info("Replayed {} depth message(s) from {}", count, file);
+        }, "binance-depth-replay");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryExecutor.shutdownNow();
+        httpClient.dispatcher().executorService().shutdown();
+    }
+
+    private void requestSnapshot(BinanceBookMirror mirror) {
+        if (replaying) {
+            // the replay file carries its own snapshots
+            return;
+        }
+        resyncCounter.increment();
+
+        String symbol = mirror.getSymbol();
+        Request request = new Request.Builder()
+                .url(config.getDepthSnapshotUrl() + "?symbol=" + symbol.toUpperCase(Locale.ROOT) +
+                        "&limit=" + config.getDepthSnapshotLimit())
+                .build();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.error("Depth snapshot request for {} failed: {}", symbol, e.getMessage());
+                retrySnapshot(mirror);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        logger.error("Depth snapshot request for {} failed: HTTP {}", symbol, response.code());
+                        retrySnapshot(mirror);
+                        return;
+                    }
+
+                    DepthUpdate snapshot = new DepthUpdate();
+                    if (parser.parse(body.string(), snapshot) != DepthMessageParser.Kind.SNAPSHOT) {
+                        logger.error("Unexpected depth snapshot response for {}", symbol);
+                        retrySnapshot(mirror);
+                        return;
+                    }
+                    snapshot.setSymbol(symbol);
+                    if (mirror.onSnapshot(snapshot)) {
+                        fireChanged(symbol);
+                    } else {
+                        retrySnapshot(mirror);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error applying depth snapshot for {}: {}", symbol, e.getMessage(), e);
+                    retrySnapshot(mirror);
+                }
+            }
+        });
+    }
+
+    private void fireChanged(String symbol) {
+        for (Consumer<String> listener : changeListeners) {
+            try {
+                listener.accept(symbol);
+            } catch (Exception e) {
+                logger.error("Book change listener error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void retrySnapshot(BinanceBookMirror mirror) {
+        retryExecutor.schedule(() -> requestSnapshot(mirror), SNAPSHOT_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -9,6 +9,10 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main service that orchestrates Binance orderbook integration.
@@ -94,9 +98,13 @@ public class BinanceOrderbookService {
     private void cleanupAllBotOrders() {
         logger.info("Cleaning up all bot orders");
         try {
+            List<CompletableFuture<Void>> cleanups = new ArrayList<>();
             for (String productId : connectionService.getProductToSymbolMap().keySet()) {
-                botOrderManagementService.cleanupStaleOrders(productId);
+                cleanups.add(botOrderManagementService.cleanupStaleOrders(productId));
             }
+            CompletableFuture.allOf(cleanups.toArray(CompletableFuture<?>[]::new)).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.error("Error cleaning up bot orders: {}", e.getMessage(), e);
         }
@@ -0,0 +1,212 @@
+package com.custom.marketdata.binance.service;
+
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderType;
+import com.custom.marketdata.binance.book.ScaledDecimal;
+import com.custom.marketdata.binance.config.BinanceOrderbookConfig;
+import com.custom.marketdata.entity.ProductEntity;
+import com.custom.marketdata.entity.User;
+import com.custom.marketdata.manager.UserManager;
+import com.custom.marketdata.repository.ProductRepository;
+import com.custom.matchingengine.command.BatchCancelOrderCommand;
+import com.custom.matchingengine.command.BatchPlaceOrderCommand;
+import com.custom.matchingengine.command.CancelOrderCommand;
+import com.custom.matchingengine.command.MatchingEngineCommandProducer;
+import com.custom.matchingengine.command.PlaceOrderCommand;
+import com.custom.matchingengine.command.ReplaceOrderCommand;
+import com.google.common.collect.Lists;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Callback;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the bot's commands straight to the matching engine. The bot user and the products are looked up once,
+ * commands are formatted and validated like {@code OrderController} does for user orders, and the commands of
+ * a sync are collected in a {@link Batch} that goes out as a few batch commands and a single flush.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BotOrderGateway {
+    private final BinanceOrderbookConfig config;
+    private final UserManager userManager;
+    private final ProductRepository productRepository;
+    private final MatchingEngineCommandProducer matchingEngineCommandProducer;
+    private final Map<String, ProductEntity> productById = new ConcurrentHashMap<>();
+    private final Callback sendCallback = (metadata, e) -> {
+        if (e != null) {
+            logger.error("Failed to send bot command: {}", e.getMessage(), e);
+        }
+    };
+    private volatile String botUserId;
+
+    public String getBotUserId() {
+        String userId = botUserId;
+        if (userId == null) {
+            User user = userManager.getUser(config.getBotEmail(), config.getBotPassword());
+            if (user == null) {
+                throw new IllegalStateException("bot user not found: " + config.getBotEmail());
+            }
+            userId = user.getId();
+            botUserId = userId;
+        }
+        return userId;
+    }
+
+    /**
+     * Starts collecting the commands of one sync, nothing is sent before {@link Batch#send()}.
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * The size an order of {@code size} gets on the product, after rounding down to its base scale.
+     */
+    public long formatSize(String productId, long size) {
+        return ScaledDecimal.of(ScaledDecimal.toBigDecimal(size)
+                .setScale(getProduct(productId).getBaseScale(), RoundingMode.DOWN));
+    }
+
+    /**
+     * The price an order at {@code price} gets on the product, after rounding down to its quote scale.
+     */
+    public long formatPrice(String productId, long price) {
+        return ScaledDecimal.of(ScaledDecimal.toBigDecimal(price)
+                .setScale(getProduct(productId).getQuoteScale(), RoundingMode.DOWN));
+    }
+
+    /**
+     * Drops the cached products, e.g. after the product list changed.
+     */
+    public void refreshProducts() {
+        productById.clear();
+    }
+
+    private ProductEntity getProduct(String productId) {
+        ProductEntity product = productById.get(productId);
+        if (product == null) {
+            product = productRepository.findById(productId);
+            if (product == null) {
+                throw new IllegalArgumentException("product not found: " + productId);
+            }
+            productById.put(productId, product);
+        }
+        return product;
+    }
+
+    /**
+     * Commands of one sync. Cancels go out first, as one batch command, then resizes and then the new orders
+     * as one batch command, so that a new order never meets an order of the bot that was about to be cancelled.
+     */
+    public class Batch {
+        private final List<CancelOrderCommand> cancels = new ArrayList<>();
+        private final List<ReplaceOrderCommand> resizes = new ArrayList<>();
+        private final List<PlaceOrderCommand> places = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Adds a limit order, returning it as formatted for the product, or null if nothing is left of it after
+         * rounding to the product's scales.
+         */
+        public PlacedOrder place(String productId, OrderSide side, long price, long size) {
+            ProductEntity product = getProduct(productId);
+            BigDecimal formattedSize = ScaledDecimal.toBigDecimal(size)
+                    .setScale(product.getBaseScale(), RoundingMode.DOWN);
+            BigDecimal formattedPrice = ScaledDecimal.toBigDecimal(price)
+                    .setScale(product.getQuoteScale(), RoundingMode.DOWN);
+            BigDecimal funds = side == OrderSide.BUY ? formattedSize.multiply(formattedPrice) : BigDecimal.ZERO;
+            if (formattedSize.signum() <= 0 || (side == OrderSide.BUY && funds.signum() <= 0)) {
+                logger.warn("bot order rejected, {} {}@{} rounds to nothing for {}",
+                        side, ScaledDecimal.toPlainString(size), ScaledDecimal.toPlainString(price), productId);
+                return null;
+            }
+
+            PlaceOrderCommand command = new PlaceOrderCommand();
+            command.setProductId(productId);
+            command.setOrderId(UUID.randomUUID().toString());
+            command.setUserId(getBotUserId());
+            command.setOrderType(OrderType.LIMIT);
+            command.setOrderSide(side);
+            command.setSize(formattedSize);
+            command.setPrice(formattedPrice);
+            command.setFunds(funds);
+            command.setTime(new Date());
+            places.add(command);
+            return new PlacedOrder(command.getOrderId(), ScaledDecimal.of(formattedPrice),
+                    ScaledDecimal.of(formattedSize));
+        }
+
+        /**
+         * Changes the size of a resting order in place, returning the size it is sent with, or 0 if nothing is
+         * left of it after rounding, in which case the engine cancels it.
+         */
+        public long resize(String productId, String orderId, long size) {
+            BigDecimal formattedSize = ScaledDecimal.toBigDecimal(size)
+                    .setScale(getProduct(productId).getBaseScale(), RoundingMode.DOWN);
+            ReplaceOrderCommand command = new ReplaceOrderCommand();
+            command.setProductId(productId);
+            command.setOrderId(orderId);
+            command.setRemainingSize(formattedSize);
+            resizes.add(command);
+            return ScaledDecimal.of(formattedSize);
+        }
+
+        public void cancel(String productId, String orderId) {
+            CancelOrderCommand command = new CancelOrderCommand();
+            command.setProductId(productId);
+            command.setOrderId(orderId);
+            cancels.add(command);
+        }
+
+        public boolean isEmpty() {
+            return cancels.isEmpty() && resizes.isEmpty() && places.isEmpty();
+        }
+
+        /**
+         * Sends the collected commands and pushes them to the engine right away.
+         */
+        public void send() {
+            if (isEmpty()) {
+                return;
+            }
+            for (List<CancelOrderCommand> orders : Lists.partition(cancels, BatchCancelOrderCommand.MAX_ORDERS)) {
+                BatchCancelOrderCommand command = new BatchCancelOrderCommand();
+                command.setOrders(new ArrayList<>(orders));
+                matchingEngineCommandProducer.send(command, sendCallback);
+            }
+            for (ReplaceOrderCommand command : resizes) {
+                matchingEngineCommandProducer.send(command, sendCallback);
+            }
+            for (List<PlaceOrderCommand> orders : Lists.partition(places, BatchPlaceOrderCommand.MAX_ORDERS)) {
+                BatchPlaceOrderCommand command = new BatchPlaceOrderCommand();
+                command.setOrders(new ArrayList<>(orders));
+                matchingEngineCommandProducer.send(command, sendCallback);
+            }
+            matchingEngineCommandProducer.flush();
+            cancels.clear();
+            resizes.clear();
+            places.clear();
+        }
+    }
+
+    @Value
+    public static class PlacedOrder {
+        String orderId;
+        long price;
+        long size;
+    }
+}
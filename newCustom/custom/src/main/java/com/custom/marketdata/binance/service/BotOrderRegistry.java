@@ -0,0 +1,189 @@
+package com.custom.marketdata.binance.service;
+
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderStatus;
+import com.custom.marketdata.binance.book.RestingOrders;
+import com.custom.marketdata.binance.book.ScaledDecimal;
+import com.custom.marketdata.entity.OrderEntity;
+import com.custom.marketdata.manager.OpenOrderListener;
+import com.custom.marketdata.manager.OpenOrderManager;
+import com.custom.marketdata.repository.OrderRepository;
+import com.custom.matchingengine.Order;
+import com.custom.openapi.model.CursorPagedList;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authoritative view of the bot's orders per product, side and price. Orders the bot places are registered as
+ * soon as they are sent and cancels take them out right away; fills and cancellations done by the engine arrive
+ * through the {@link OpenOrderManager} order stream, and so do commands the engine rejected. A product is loaded once, from the open order index, or from
+ * the database when the index is not ready yet at startup.
+ * <p>
+ * Callers synchronize on the {@link RestingOrders} of a product while they read or change it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BotOrderRegistry implements OpenOrderListener {
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final OpenOrderManager openOrderManager;
+    private final OrderRepository orderRepository;
+    private final Map<String, RestingOrders> restingOrdersByProductId = new ConcurrentHashMap<>();
+    /**
+     * Orders the bot cancelled that the engine has not confirmed yet, so that a late OPEN does not bring them back
+     */
+    private final Set<String> cancellingOrderIds = ConcurrentHashMap.newKeySet();
+    private volatile String botUserId;
+
+    @PostConstruct
+    public void initialize() {
+        openOrderManager.addListener(this);
+    }
+
+    /**
+     * Returns the bot's orders on a product, loading them on first use.
+     */
+    public RestingOrders getRestingOrders(String botUserId, String productId) {
+        this.botUserId = botUserId;
+        return restingOrdersByProductId.computeIfAbsent(productId, p -> load(botUserId, p));
+    }
+
+    /**
+     * Records an order the bot just sent, before the engine has seen it.
+     */
+    public void placed(RestingOrders restingOrders, OrderSide side, String orderId, long price, long size) {
+        side(restingOrders, side).put(price, new RestingOrders.RestingOrder(orderId, price, size));
+    }
+
+    /**
+     * Records that the bot asked for the order at this price to be cancelled.
+     */
+    public void cancelled(RestingOrders restingOrders, OrderSide side, long price) {
+        RestingOrders.RestingOrder order = side(restingOrders, side).remove(price);
+        if (order != null) {
+            cancellingOrderIds.add(order.getOrderId());
+        }
+    }
+
+    /**
+     * Forgets a product, it is loaded again on next use.
+     */
+    public void evict(String productId) {
+        restingOrdersByProductId.remove(productId);
+    }
+
+    @Override
+    public void onOrder(Order order) {
+        if (botUserId == null || !botUserId.equals(order.getUserId())) {
+            return;
+        }
+        RestingOrders restingOrders = restingOrdersByProductId.get(order.getProductId());
+        if (restingOrders == null) {
+            // not loaded yet, the load will see this order in the index
+            return;
+        }
+
+        long price = ScaledDecimal.of(order.getPrice());
+        synchronized (restingOrders) {
+            TreeMap<Long, RestingOrders.RestingOrder> side = side(restingOrders, order.getSide());
+            RestingOrders.RestingOrder current = side.get(price);
+            if (order.getStatus() == OrderStatus.OPEN) {
+                if (cancellingOrderIds.contains(order.getId())) {
+                    return;
+                }
+                if (current == null || current.getOrderId().equals(order.getId())) {
+                    side.put(price, new RestingOrders.RestingOrder(order.getId(), price,
+                            ScaledDecimal.of(order.getRemainingSize())));
+                }
+            } else if (order.getStatus() == OrderStatus.FILLED || order.getStatus() == OrderStatus.CANCELLED ||
+                    order.getStatus() == OrderStatus.REJECTED) {
+                cancellingOrderIds.remove(order.getId());
+                if (current != null && current.getOrderId().equals(order.getId())) {
+                    side.remove(price);
+                }
+            }
+        }
+    }
+
+    /**
+     * A rejected place or replace never rested with what the bot recorded, and a rejected cancel is not going to
+     * be confirmed, so the entry is dropped and the level placed again on the next sync. An order that is still
+     * open, e.g. after a replace rejected for another reason, is put back as the index has it.
+     */
+    @Override
+    public void onRejected(String orderId) {
+        if (botUserId == null) {
+            return;
+        }
+        Order openOrder = openOrderManager.getOrder(orderId);
+        if (openOrder != null) {
+            onOrder(openOrder);
+            return;
+        }
+
+        cancellingOrderIds.remove(orderId);
+        for (RestingOrders restingOrders : restingOrdersByProductId.values()) {
+            synchronized (restingOrders) {
+                if (restingOrders.getBids().values().removeIf(order -> order.getOrderId().equals(orderId)) ||
+                        restingOrders.getAsks().values().removeIf(order -> order.getOrderId().equals(orderId))) {
+                    logger.warn("Engine rejected bot order {}, dropped it from the registry", orderId);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onReset() {
+        // reload from the restored index on next use
+        restingOrdersByProductId.clear();
+    }
+
+    private RestingOrders load(String botUserId, String productId) {
+        RestingOrders restingOrders = new RestingOrders();
+        if (openOrderManager.isReady()) {
+            for (Order order : openOrderManager.getOpenOrders(botUserId, productId, null)) {
+                add(restingOrders, order.getId(), order.getSide(), order.getPrice(), order.getRemainingSize());
+            }
+        } else {
+            String cursor = null;
+            do {
+                CursorPagedList<OrderEntity> page = orderRepository.findAll(botUserId, productId, OrderStatus.OPEN,
+                        null, cursor, LOAD_PAGE_SIZE, false);
+                for (OrderEntity order : page.getItems()) {
+                    BigDecimal filledSize = order.getFilledSize() != null ? order.getFilledSize() : BigDecimal.ZERO;
+                    add(restingOrders, order.getId(), order.getSide(), order.getPrice(),
+                            order.getSize().subtract(filledSize));
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        }
+        logger.info("Loaded {} bid and {} ask bot order(s) for {}",
+                restingOrders.getBids().size(), restingOrders.getAsks().size(), productId);
+        return restingOrders;
+    }
+
+    private void add(RestingOrders restingOrders, String orderId, OrderSide side, BigDecimal price,
+                     BigDecimal remainingSize) {
+        long scaledPrice = ScaledDecimal.of(price);
+        RestingOrders.RestingOrder previous = side(restingOrders, side).putIfAbsent(scaledPrice,
+                new RestingOrders.RestingOrder(orderId, scaledPrice, ScaledDecimal.of(remainingSize)));
+        if (previous != null) {
+            // one order per level, anything else at the same price is left over from an earlier run
+            restingOrders.getStrayOrderIds().add(orderId);
+        }
+    }
+
+    private TreeMap<Long, RestingOrders.RestingOrder> side(RestingOrders restingOrders, OrderSide side) {
+        return side == OrderSide.BUY ? restingOrders.getBids() : restingOrders.getAsks();
+    }
+}
@@ -0,0 +1,95 @@
+package com.custom.marketdata.binance.service;
+
+import com.custom.marketdata.binance.config.BinanceOrderbookConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mirrors the liquidity of the Binance books onto our books as their levels change. A change schedules a sync of
+ * its product a short delay later, and the changes arriving until then are synced with it; they do not push the
+ * sync back. Syncs of a product are spaced by a minimum interval. The syncs of a product run one at a time in its
+ * executor lane, where a sync that has not started yet absorbs the next one. Each sync only looks at the levels
+ * that changed since the previous one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiquidityMirrorService {
+    private final BinanceOrderbookConfig config;
+    private final BinanceBookMirrorService bookMirrorService;
+    private final WebSocketConnectionService connectionService;
+    private final BotOrderManagementService botOrderManagementService;
+    private final Map<String, ProductSync> productSyncs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "binance-liquidity-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        bookMirrorService.addChangeListener(this::onBookChanged);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void onBookChanged(String symbol) {
+        String productId = connectionService.getProductId(symbol);
+        if (productId == null) {
+            return;
+        }
+        schedule(productSyncs.computeIfAbsent(productId, p -> new ProductSync(p, symbol)));
+    }
+
+    private void schedule(ProductSync productSync) {
+        if (!productSync.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long delay = Math.max(config.getSyncDebounceMs(),
+                productSync.lastSyncAt + config.getSyncMinIntervalMs() - now);
+        scheduler.schedule(() -> sync(productSync), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void sync(ProductSync productSync) {
+        // changes from now on schedule the next sync, it is folded into this one if this one has not started yet
+        productSync.scheduled.set(false);
+        productSync.lastSyncAt = System.currentTimeMillis();
+        botOrderManagementService.applyLevelChanges(productSync.productId,
+                        changes -> bookMirrorService.drainChanges(productSync.symbol, changes))
+                .whenComplete((r, e) -> {
+                    if (e != null) {
+                        logger.error("Error syncing orderbook for product {}: {}",
+                                productSync.productId, e.getMessage());
+                    }
+                });
+    }
+
+    private static class ProductSync {
+        private final String productId;
+        private final String symbol;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastSyncAt;
+
+        private ProductSync(String productId, String symbol) {
+            this.productId = productId;
+            this.symbol = symbol;
+        }
+    }
+}
@@ -8,12 +8,14 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.WebSocketClient;
 
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,18 +29,29 @@ public class WebSocketConnectionService {
     private final BinanceOrderbookConfig config;
     private final WebSocketClient webSocketClient;
     private final BinanceWebSocketHandler webSocketHandler;
+    private final BinanceBookMirrorService bookMirrorService;
     
     @Getter
     private Map<String, String> productToSymbolMap = new ConcurrentHashMap<>();
+    private final Map<String, String> symbolToProductMap = new ConcurrentHashMap<>();
     private WebSocketSession webSocketSession;
     
     public void initialize(Map<String, String> productMapping) {
         this.productToSymbolMap.clear();
         this.productToSymbolMap.putAll(productMapping);
+        this.symbolToProductMap.clear();
+        productMapping.forEach((productId, symbol) -> symbolToProductMap.put(symbol, productId));
         connectToWebSocket();
     }
     
     public void connectToWebSocket() {
+        if (StringUtils.hasText(config.getReplayFile())) {
+            if (!bookMirrorService.isReplaying()) {
+                bookMirrorService.replay(Paths.get(config.getReplayFile()));
+            }
+            return;
+        }
+
         try {
             // Get all binance symbols from our mapping
             List<String> symbols = new ArrayList<>(productToSymbolMap.values());
@@ -48,9 +61,9 @@ public class WebSocketConnectionService {
                 return;
             }
             
-            // Create stream names for each symbol (e.g., "btcusdt@depth20")
+            // Create diff stream names for each symbol (e.g., "btcusdt@depth@100ms")
             String streams = String.join("/", symbols.stream()
-                    .map(symbol -> symbol.toLowerCase() + "@depth20")
+                    .map(symbol -> symbol.toLowerCase() + "@depth@100ms")
                     .collect(Collectors.toList()));
             
             String wsUrl = config.getWebsocketUrl() + streams;
@@ -81,7 +94,14 @@ public class WebSocketConnectionService {
         }
     }
     
+    public String getProductId(String symbol) {
+        return symbolToProductMap.get(symbol);
+    }
+
     public boolean isConnected() {
+        if (bookMirrorService.isReplaying()) {
+            return true;
+        }
         return webSocketSession != null && webSocketSession.isOpen();
     }
     
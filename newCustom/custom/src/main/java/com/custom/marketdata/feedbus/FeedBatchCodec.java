@@ -0,0 +1,211 @@
+package com.custom.marketdata.feedbus;
+
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderStatus;
+import com.custom.enums.OrderType;
+import com.custom.matchingengine.Account;
+import com.custom.matchingengine.Order;
+import com.custom.matchingengine.Trade;
+import com.custom.matchingengine.message.AccountMessage;
+import com.custom.matchingengine.message.Message;
+import com.custom.matchingengine.message.MessageType;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.message.TradeMessage;
+import lombok.SneakyThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.custom.marketdata.DecimalCodec.readDecimal;
+import static com.custom.marketdata.DecimalCodec.writeDecimal;
+
+/**
+ * Binary encoding of a batch of order, trade and account messages: version (byte), count (int), then each message
+ * as its {@link MessageType} byte, its sequence and its fields in a fixed order.
+ */
+final class FeedBatchCodec {
+    private static final byte VERSION = 1;
+
+    private FeedBatchCodec() {
+    }
+
+    @SneakyThrows(IOException.class)
+    static byte[] encode(List<Message> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 160 * messages.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeInt(messages.size());
+        for (Message message : messages) {
+            out.writeByte(message.getMessageType().getByteValue());
+            out.writeLong(message.getSequence());
+            if (message instanceof OrderMessage orderMessage) {
+                out.writeLong(orderMessage.getOrderBookSequence());
+                writeOrder(out, orderMessage.getOrder());
+            } else if (message instanceof TradeMessage tradeMessage) {
+                writeTrade(out, tradeMessage.getTrade());
+            } else if (message instanceof AccountMessage accountMessage) {
+                writeAccount(out, accountMessage.getAccount());
+            } else {
+                throw new IllegalArgumentException("unsupported message type: " + message.getMessageType());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @SneakyThrows(IOException.class)
+    static List<Message> decode(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unexpected feed batch version: " + version);
+        }
+        int count = in.readInt();
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MessageType messageType = MessageType.valueOfByte(in.readByte());
+            long sequence = in.readLong();
+            Message message;
+            switch (messageType) {
+                case ORDER -> {
+                    OrderMessage orderMessage = new OrderMessage();
+                    orderMessage.setOrderBookSequence(in.readLong());
+                    orderMessage.setOrder(readOrder(in));
+                    message = orderMessage;
+                }
+                case TRADE -> {
+                    TradeMessage tradeMessage = new TradeMessage();
+                    tradeMessage.setTrade(readTrade(in));
+                    message = tradeMessage;
+                }
+                case ACCOUNT -> {
+                    AccountMessage accountMessage = new AccountMessage();
+                    accountMessage.setAccount(readAccount(in));
+                    message = accountMessage;
+                }
+                default -> throw new IOException("unexpected message type in feed batch: " + messageType);
+            }
+            message.setSequence(sequence);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        writeString(out, order.getId());
+        out.writeLong(order.getSequence());
+        writeString(out, order.getUserId());
+        writeString(out, order.getProductId());
+        writeString(out, order.getClientOid());
+        writeEnum(out, order.getType());
+        writeEnum(out, order.getSide());
+        writeEnum(out, order.getStatus());
+        writeDecimal(out, order.getPrice());
+        writeDecimal(out, order.getSize());
+        writeDecimal(out, order.getFunds());
+        writeDecimal(out, order.getRemainingSize());
+        writeDecimal(out, order.getRemainingFunds());
+        writeDate(out, order.getTime());
+        out.writeBoolean(order.isPostOnly());
+    }
+
+    private static Order readOrder(DataInputStream in) throws IOException {
+        Order order = new Order();
+        order.setId(readString(in));
+        order.setSequence(in.readLong());
+        order.setUserId(readString(in));
+        order.setProductId(readString(in));
+        order.setClientOid(readString(in));
+        order.setType(readEnum(in, OrderType.values()));
+        order.setSide(readEnum(in, OrderSide.values()));
+        order.setStatus(readEnum(in, OrderStatus.values()));
+        order.setPrice(readDecimal(in));
+        order.setSize(readDecimal(in));
+        order.setFunds(readDecimal(in));
+        order.setRemainingSize(readDecimal(in));
+        order.setRemainingFunds(readDecimal(in));
+        order.setTime(readDate(in));
+        order.setPostOnly(in.readBoolean());
+        return order;
+    }
+
+    private static void writeTrade(DataOutputStream out, Trade trade) throws IOException {
+        writeString(out, trade.getProductId());
+        out.writeLong(trade.getSequence());
+        writeDecimal(out, trade.getSize());
+        writeDecimal(out, trade.getFunds());
+        writeDecimal(out, trade.getPrice());
+        writeDate(out, trade.getTime());
+        writeEnum(out, trade.getSide());
+        writeString(out, trade.getTakerOrderId());
+        writeString(out, trade.getMakerOrderId());
+    }
+
+    private static Trade readTrade(DataInputStream in) throws IOException {
+        Trade trade = new Trade();
+        trade.setProductId(readString(in));
+        trade.setSequence(in.readLong());
+        trade.setSize(readDecimal(in));
+        trade.setFunds(readDecimal(in));
+        trade.setPrice(readDecimal(in));
+        trade.setTime(readDate(in));
+        trade.setSide(readEnum(in, OrderSide.values()));
+        trade.setTakerOrderId(readString(in));
+        trade.setMakerOrderId(readString(in));
+        return trade;
+    }
+
+    private static void writeAccount(DataOutputStream out, Account account) throws IOException {
+        writeString(out, account.getId());
+        writeString(out, account.getUserId());
+        writeString(out, account.getCurrency());
+        writeDecimal(out, account.getAvailable());
+        writeDecimal(out, account.getHold());
+    }
+
+    private static Account readAccount(DataInputStream in) throws IOException {
+        Account account = new Account();
+        account.setId(readString(in));
+        account.setUserId(readString(in));
+        account.setCurrency(readString(in));
+        account.setAvailable(readDecimal(in));
+        account.setHold(readDecimal(in));
+        return account;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeByte(value != null ? value.ordinal() : -1);
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, E[] values) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal >= 0 ? values[ordinal] : null;
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.custom.marketdata.feedbus;
+
+import com.custom.matchingengine.message.AccountMessage;
+import com.custom.matchingengine.message.Message;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.message.TradeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.StatusListener;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans order, trade and account messages out to every node. Producers collect the messages of one poll into a
+ * {@link Batch} that goes out as a single binary Redis publish; each node decodes a batch once and dispatches it
+ * to its {@link FeedBusListener}s.
+ */
+@Component
+@Slf4j
+public class FeedBus {
+    public static final String TOPIC = "feed.bin";
+
+    private final RTopic topic;
+    private final List<FeedBusListener> listeners = new CopyOnWriteArrayList<>();
+
+    public FeedBus(RedissonClient redissonClient) {
+        this.topic = redissonClient.getTopic(TOPIC, ByteArrayCodec.INSTANCE);
+        this.topic.addListener(byte[].class, (c, msg) -> dispatch(FeedBatchCodec.decode(msg)));
+        this.topic.addListener(new StatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                listeners.forEach(FeedBusListener::onSubscriptionChanged);
+            }
+
+            @Override
+            public void onUnsubscribe(String channel) {
+                listeners.forEach(FeedBusListener::onSubscriptionChanged);
+            }
+        });
+    }
+
+    public void addListener(FeedBusListener listener) {
+        listeners.add(listener);
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    private void dispatch(List<Message> messages) {
+        for (Message message : messages) {
+            for (FeedBusListener listener : listeners) {
+                try {
+                    if (message instanceof OrderMessage orderMessage) {
+                        listener.onOrder(orderMessage);
+                    } else if (message instanceof TradeMessage tradeMessage) {
+                        listener.onTrade(tradeMessage);
+                    } else if (message instanceof AccountMessage accountMessage) {
+                        listener.onAccount(accountMessage);
+                    }
+                } catch (Exception e) {
+                    logger.error("feed bus listener error: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Messages of one poll. Not thread safe.
+     */
+    public class Batch {
+        private final List<Message> messages = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        public void add(Message message) {
+            messages.add(message);
+        }
+
+        public void publish() {
+            if (messages.isEmpty()) {
+                return;
+            }
+            topic.publishAsync(FeedBatchCodec.encode(messages));
+            messages.clear();
+        }
+    }
+}
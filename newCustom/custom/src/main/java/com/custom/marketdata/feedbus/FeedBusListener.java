@@ -0,0 +1,27 @@
+package com.custom.marketdata.feedbus;
+
+import com.custom.matchingengine.message.AccountMessage;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.message.TradeMessage;
+
+/**
+ * Receives the messages of every batch published on the {@link FeedBus}, in batch order. Called on the Redis
+ * listener thread, so implementations must hand off anything slow.
+ */
+public interface FeedBusListener {
+    default void onOrder(OrderMessage message) {
+    }
+
+    default void onTrade(TradeMessage message) {
+    }
+
+    default void onAccount(AccountMessage message) {
+    }
+
+    /**
+     * Called when the subscription to the bus was (re-)established or lost. Messages published while it was down
+     * are not delivered.
+     */
+    default void onSubscriptionChanged() {
+    }
+}
@@ -1,14 +1,27 @@
 package com.custom.marketdata.manager;
 
+import com.custom.AppProperties;
 import com.custom.marketdata.entity.AccountEntity;
+import com.custom.marketdata.feedbus.FeedBus;
+import com.custom.marketdata.feedbus.FeedBusListener;
 import com.custom.marketdata.repository.AccountRepository;
 import com.custom.marketdata.repository.BillRepository;
+import com.custom.matchingengine.Account;
+import com.custom.matchingengine.message.AccountMessage;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
@@ -16,9 +29,61 @@ import java.util.List;
 public class AccountManager {
     private final AccountRepository accountRepository;
     private final BillRepository billRepository;
+    private final FeedBus feedBus;
+    private final AppProperties appProperties;
+    /**
+     * Balances by user and currency. An entry is loaded from Mongo on a miss, kept current from the feed bus,
+     * and reloaded once it is older than the staleness bound in case a pub/sub message was lost.
+     */
+    private Cache<String, Map<String, VersionedAccount>> accountCache;
+    /**
+     * The latest balances from the feed bus by user and currency, cached or not. Mongo lags the feed, so these are
+     * laid over every load; a user's balances are dropped once they have not been updated for far longer than
+     * the lag.
+     */
+    private Cache<String, Map<String, VersionedAccount>> recentUpdates;
+
+    @PostConstruct
+    public void init() {
+        accountCache = CacheBuilder.newBuilder()
+                .maximumSize(appProperties.getAccountCacheMaxUsers())
+                .expireAfterWrite(appProperties.getAccountCacheMaxStalenessMs(), TimeUnit.MILLISECONDS)
+                .build();
+        recentUpdates = CacheBuilder.newBuilder()
+                .maximumSize(appProperties.getAccountCacheMaxUsers())
+                .expireAfterAccess(appProperties.getAccountCacheMaxStalenessMs(), TimeUnit.MILLISECONDS)
+                .build();
+
+        feedBus.addListener(new FeedBusListener() {
+            @Override
+            public void onAccount(AccountMessage message) {
+                apply(message);
+            }
+
+            @Override
+            public void onSubscriptionChanged() {
+                // messages published while the subscription was down are lost
+                accountCache.invalidateAll();
+                recentUpdates.invalidateAll();
+            }
+        });
+    }
 
     public List<AccountEntity> getAccounts(String userId) {
-        return accountRepository.findAccountsByUserId(userId);
+        Map<String, VersionedAccount> accounts;
+        try {
+            accounts = accountCache.get(userId, () -> load(userId));
+        } catch (ExecutionException e) {
+            logger.error("load accounts error: userId={}", userId, e.getCause());
+            return accountRepository.findAccountsByUserId(userId);
+        }
+        // updates that arrived while the entry was loading were not applied to it
+        overlayRecentUpdates(userId, accounts);
+        List<AccountEntity> result = new ArrayList<>(accounts.size());
+        for (VersionedAccount account : accounts.values()) {
+            result.add(account.account);
+        }
+        return result;
     }
 
     public void saveAll(Collection<AccountEntity> accounts) {
@@ -30,4 +95,63 @@ public class AccountManager {
         accountRepository.saveAll(accounts);
         logger.info("saved {} account(s) ({}ms)", accounts.size(), System.currentTimeMillis() - t1);
     }
+
+    private Map<String, VersionedAccount> load(String userId) {
+        Map<String, VersionedAccount> accounts = new ConcurrentHashMap<>();
+        for (AccountEntity accountEntity : accountRepository.findAccountsByUserId(userId)) {
+            accounts.put(accountEntity.getCurrency(), new VersionedAccount(accountEntity, 0));
+        }
+        overlayRecentUpdates(userId, accounts);
+        return accounts;
+    }
+
+    private void overlayRecentUpdates(String userId, Map<String, VersionedAccount> accounts) {
+        Map<String, VersionedAccount> updates = recentUpdates.getIfPresent(userId);
+        if (updates != null) {
+            updates.forEach((currency, update) -> merge(accounts, currency, update));
+        }
+    }
+
+    /**
+     * Records a balance update and applies it to the user if cached. Users that are not cached pick it up when
+     * they are loaded, and updates older than the current version are dropped.
+     */
+    private void apply(AccountMessage message) {
+        Account account = message.getAccount();
+        AccountEntity accountEntity = new AccountEntity();
+        accountEntity.setId(account.getUserId() + "-" + account.getCurrency());
+        accountEntity.setUserId(account.getUserId());
+        accountEntity.setCurrency(account.getCurrency());
+        accountEntity.setAvailable(account.getAvailable());
+        accountEntity.setHold(account.getHold());
+        VersionedAccount update = new VersionedAccount(accountEntity, message.getSequence());
+        try {
+            merge(recentUpdates.get(account.getUserId(), ConcurrentHashMap::new), account.getCurrency(), update);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        Map<String, VersionedAccount> accounts = accountCache.getIfPresent(account.getUserId());
+        if (accounts != null) {
+            merge(accounts, account.getCurrency(), update);
+        }
+    }
+
+    private static void merge(Map<String, VersionedAccount> accounts, String currency, VersionedAccount update) {
+        accounts.merge(currency, update,
+                (current, candidate) -> candidate.sequence > current.sequence ? candidate : current);
+    }
+
+    private static class VersionedAccount {
+        private final AccountEntity account;
+        /**
+         * Sequence of the engine message the balance comes from, 0 if it was loaded from Mongo
+         */
+        private final long sequence;
+
+        private VersionedAccount(AccountEntity account, long sequence) {
+            this.account = account;
+            this.sequence = sequence;
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.custom.marketdata.manager;
+
+import com.custom.matchingengine.Order;
+
+/**
+ * Notified by {@link OpenOrderManager} on the thread that applies the engine order stream. Implementations must
+ * not block.
+ */
+public interface OpenOrderListener {
+    /**
+     * An order update was applied to the index.
+     */
+    void onOrder(Order order);
+
+    /**
+     * The engine rejected a command for this order, e.g. a replace of an order that is no longer in the book.
+     * No order update follows for it.
+     */
+    default void onRejected(String orderId) {
+    }
+
+    /**
+     * The index was rebuilt from an engine snapshot, state derived from earlier updates may be stale.
+     */
+    void onReset();
+}
@@ -0,0 +1,130 @@
+package com.custom.marketdata.manager;
+
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderStatus;
+import com.custom.matchingengine.Order;
+import com.custom.matchingengine.message.OrderResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory index of the orders resting in the matching engine, by id and by user. It is rebuilt from the engine
+ * snapshot and then kept up to date from the engine message stream by {@code OpenOrderIndexThread}, so it is
+ * eventually consistent with the engine: an order that was just placed may not be visible yet.
+ * <p>
+ * Callers must fall back to the database while the index is not {@link #isReady() ready}.
+ */
+@Component
+public class OpenOrderManager {
+    private final Map<String, Order> orderById = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Order>> ordersByUserId = new ConcurrentHashMap<>();
+    private final List<OpenOrderListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean ready;
+
+    public void addListener(OpenOrderListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the open order with the given id, or null if it is not resting in the book.
+     */
+    public Order getOrder(String orderId) {
+        return orderById.get(orderId);
+    }
+
+    /**
+     * Returns the open orders of a user, newest first. {@code productId} and {@code side} are optional filters.
+     */
+    public List<Order> getOpenOrders(String userId, String productId, OrderSide side) {
+        Map<String, Order> orders = ordersByUserId.get(userId);
+        if (orders == null) {
+            return new ArrayList<>();
+        }
+        List<Order> result = new ArrayList<>();
+        for (Order order : orders.values()) {
+            if ((productId == null || productId.equals(order.getProductId())) &&
+                    (side == null || side == order.getSide())) {
+                result.add(order);
+            }
+        }
+        result.sort(Comparator.comparing(Order::getTime, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Order::getSequence, Comparator.reverseOrder()));
+        return result;
+    }
+
+    /**
+     * Applies an order update from the engine message stream.
+     */
+    public void apply(Order order) {
+        if (order.getStatus() == OrderStatus.OPEN) {
+            put(order);
+        } else if (order.getStatus() == OrderStatus.FILLED || order.getStatus() == OrderStatus.CANCELLED ||
+                order.getStatus() == OrderStatus.REJECTED) {
+            remove(order);
+        }
+        for (OpenOrderListener listener : listeners) {
+            listener.onOrder(order);
+        }
+    }
+
+    /**
+     * Applies the per order results of a command from the engine message stream. A rejected item left the book
+     * as it was, so only the listeners are told about it.
+     */
+    public void applyResults(List<OrderResult> results) {
+        for (OrderResult result : results) {
+            if (result.getStatus() == OrderStatus.REJECTED) {
+                for (OpenOrderListener listener : listeners) {
+                    listener.onRejected(result.getOrderId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole index with the orders restored from an engine snapshot and marks it ready.
+     */
+    public void reset(Collection<Order> openOrders) {
+        ready = false;
+        orderById.clear();
+        ordersByUserId.clear();
+        // everything in the snapshot is resting in the book, whatever status it was saved with
+        openOrders.forEach(this::put);
+        ready = true;
+        listeners.forEach(OpenOrderListener::onReset);
+    }
+
+    /**
+     * Marks the index as stale, e.g. when its consumer lost the partition it was following.
+     */
+    public void invalidate() {
+        ready = false;
+    }
+
+    private void put(Order order) {
+        orderById.put(order.getId(), order);
+        ordersByUserId.computeIfAbsent(order.getUserId(), k -> new ConcurrentHashMap<>()).put(order.getId(), order);
+    }
+
+    private void remove(Order order) {
+        Order removed = orderById.remove(order.getId());
+        if (removed == null) {
+            return;
+        }
+        ordersByUserId.computeIfPresent(removed.getUserId(), (k, orders) -> {
+            orders.remove(removed.getId());
+            return orders.isEmpty() ? null : orders;
+        });
+    }
+}
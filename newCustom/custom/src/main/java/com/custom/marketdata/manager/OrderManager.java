@@ -24,4 +24,13 @@ public class OrderManager {
         orderRepository.saveAll(orders);
         logger.info("saved {} order(s) ({}ms)", orders.size(), System.currentTimeMillis() - t1);
     }
+
+    public void updateAll(Collection<OrderEntity> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        long t1 = System.currentTimeMillis();
+        orderRepository.updateAll(orders);
+        logger.info("updated {} order(s) ({}ms)", orders.size(), System.currentTimeMillis() - t1);
+    }
 }
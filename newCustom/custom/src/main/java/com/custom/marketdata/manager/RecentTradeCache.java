@@ -0,0 +1,183 @@
+package com.custom.marketdata.manager;
+
+import com.custom.AppProperties;
+import com.custom.marketdata.entity.TradeEntity;
+import com.custom.marketdata.feedbus.FeedBus;
+import com.custom.marketdata.feedbus.FeedBusListener;
+import com.custom.marketdata.repository.TradeRepository;
+import com.custom.matchingengine.Trade;
+import com.custom.matchingengine.message.TradeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The most recent trades of every product, kept in a ring per product that is fed from the feed bus and
+ * seeded from Mongo on first use and again after the bus subscription changed. Renderings of the ring (DTO lists,
+ * websocket frames) are cached until the next trade of the product.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RecentTradeCache {
+    private final TradeRepository tradeRepository;
+    private final FeedBus feedBus;
+    private final AppProperties appProperties;
+    private final ConcurrentHashMap<String, TradeRing> rings = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        feedBus.addListener(new FeedBusListener() {
+            @Override
+            public void onTrade(TradeMessage message) {
+                add(tradeEntity(message));
+            }
+
+            @Override
+            public void onSubscriptionChanged() {
+                // trades published while the subscription was down are lost, read them from Mongo again
+                rings.values().forEach(ring -> ring.loaded = false);
+            }
+        });
+    }
+
+    public void add(TradeEntity trade) {
+        rings.computeIfAbsent(trade.getProductId(), k -> new TradeRing(appProperties.getRecentTradesCapacity()))
+                .add(trade);
+    }
+
+    /**
+     * Renders the newest {@code limit} trades of a product, newest first. The result is cached under
+     * {@code name} until the product trades again, so {@code renderer} must always render the same way for the
+     * same name and the result must not be modified. Limits beyond the ring capacity are read from Mongo.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T render(String productId, String name, int limit, Function<List<TradeEntity>, T> renderer) {
+        int capacity = appProperties.getRecentTradesCapacity();
+        if (limit > capacity) {
+            return renderer.apply(tradeRepository.findByProductId(productId, limit));
+        }
+
+        TradeRing ring = rings.get(productId);
+        if (ring == null || !ring.loaded) {
+            List<TradeEntity> trades = tradeRepository.findByProductId(productId, capacity);
+            if (ring == null && trades.isEmpty()) {
+                // do not keep rings for ids that never traded
+                return renderer.apply(trades);
+            }
+            ring = rings.computeIfAbsent(productId, k -> new TradeRing(capacity));
+            ring.load(trades);
+        }
+
+        TradeRing.View view = ring.view();
+        return (T) view.rendered.computeIfAbsent(name + ":" + limit,
+                k -> renderer.apply(view.trades.subList(0, Math.min(limit, view.trades.size()))));
+    }
+
+    private TradeEntity tradeEntity(TradeMessage message) {
+        Trade trade = message.getTrade();
+        TradeEntity tradeEntity = new TradeEntity();
+        tradeEntity.setId(trade.getProductId() + "-" + trade.getSequence());
+        tradeEntity.setSequence(trade.getSequence());
+        tradeEntity.setTime(trade.getTime());
+        tradeEntity.setSize(trade.getSize());
+        tradeEntity.setPrice(trade.getPrice());
+        tradeEntity.setProductId(trade.getProductId());
+        tradeEntity.setMakerOrderId(trade.getMakerOrderId());
+        tradeEntity.setTakerOrderId(trade.getTakerOrderId());
+        tradeEntity.setSide(trade.getSide());
+        return tradeEntity;
+    }
+
+    private static class TradeRing {
+        private final TradeEntity[] trades;
+        /**
+         * Slot of the next trade, the newest trade is just before it
+         */
+        private int head;
+        private int size;
+        private long lastSequence;
+        private volatile boolean loaded;
+        private volatile View view;
+
+        private TradeRing(int capacity) {
+            this.trades = new TradeEntity[capacity];
+        }
+
+        private synchronized void add(TradeEntity trade) {
+            if (trade.getSequence() <= lastSequence) {
+                return;
+            }
+            trades[head] = trade;
+            head = (head + 1) % trades.length;
+            size = Math.min(size + 1, trades.length);
+            lastSequence = trade.getSequence();
+            view = null;
+        }
+
+        /**
+         * Merges the trades read from Mongo with the ones received since the ring was created. Mongo may lag
+         * behind the topic, so neither side is complete on its own.
+         */
+        private synchronized void load(List<TradeEntity> newestFirst) {
+            if (loaded) {
+                return;
+            }
+            TreeMap<Long, TradeEntity> merged = new TreeMap<>();
+            for (TradeEntity trade : newestFirst) {
+                merged.put(trade.getSequence(), trade);
+            }
+            for (TradeEntity trade : newestFirst()) {
+                merged.put(trade.getSequence(), trade);
+            }
+            head = 0;
+            size = 0;
+            lastSequence = 0;
+            for (TradeEntity trade : merged.values()) {
+                add(trade);
+            }
+            loaded = true;
+            view = null;
+        }
+
+        private View view() {
+            View current = view;
+            if (current == null) {
+                synchronized (this) {
+                    current = view;
+                    if (current == null) {
+                        current = new View(Collections.unmodifiableList(newestFirst()));
+                        view = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        private List<TradeEntity> newestFirst() {
+            List<TradeEntity> result = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                result.add(trades[(head - i + trades.length) % trades.length]);
+            }
+            return result;
+        }
+
+        private static class View {
+            private final List<TradeEntity> trades;
+            private final Map<String, Object> rendered = new ConcurrentHashMap<>();
+
+            private View(List<TradeEntity> trades) {
+                this.trades = trades;
+            }
+        }
+    }
+}
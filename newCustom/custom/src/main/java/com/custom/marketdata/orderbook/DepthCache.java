@@ -0,0 +1,208 @@
+package com.custom.marketdata.orderbook;
+
+import com.alibaba.fastjson.JSON;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node-local level 2 depth of every product, kept current from the snapshot and increment topics, from which the
+ * public depth endpoints are served without touching Redis.
+ * <p>
+ * Snapshots and increments both cover the top {@link OrderBookSnapshotManager#L2_BATCH_DEPTH} levels: levels that
+ * move into that window arrive as increments too, and levels that drop out of it arrive as removed.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DepthCache {
+    private final RedissonClient redissonClient;
+    private final OrderBookSnapshotManager orderBookSnapshotManager;
+    private final ConcurrentHashMap<String, ProductDepth> depths = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redissonClient.getTopic(OrderBookSnapshotManager.L2_BATCH_TOPIC, ByteArrayCodec.INSTANCE)
+                .addListener(byte[].class, (c, msg) -> {
+                    L2OrderBook snapshot = OrderBookCodec.decodeL2OrderBook(msg);
+                    depth(snapshot.getProductId()).applySnapshot(snapshot);
+                });
+        redissonClient.getTopic(OrderBookSnapshotManager.L2_INCREMENT_TOPIC, ByteArrayCodec.INSTANCE)
+                .addListener(byte[].class, (c, msg) -> {
+                    L2OrderBookIncrement increment = OrderBookCodec.decodeL2OrderBookIncrement(msg);
+                    ProductDepth depth = depths.get(increment.getProductId());
+                    if (depth != null) {
+                        depth.applyIncrement(increment);
+                    }
+                });
+    }
+
+    /**
+     * Returns the current depth of a product, or null if there is no snapshot of it. A product that is not in
+     * sync yet is seeded from the stored snapshot.
+     */
+    public DepthView getDepth(String productId) {
+        ProductDepth depth = depths.get(productId);
+        DepthView view = depth != null ? depth.view : null;
+        if (view != null) {
+            return view;
+        }
+
+        L2OrderBook snapshot = orderBookSnapshotManager.getL2BatchOrderBook(productId);
+        if (snapshot == null) {
+            return null;
+        }
+        depth = depth(productId);
+        depth.applySnapshot(snapshot);
+        view = depth.view;
+        return view != null ? view : new DepthView(snapshot.getProductId(), snapshot.getSequence(),
+                snapshot.getTime(), snapshot.getAsks(), snapshot.getBids());
+    }
+
+    private ProductDepth depth(String productId) {
+        return depths.computeIfAbsent(productId, ProductDepth::new);
+    }
+
+    private static class ProductDepth {
+        private final String productId;
+        private final TreeMap<BigDecimal, L2OrderBook.Line> asks = new TreeMap<>(Comparator.naturalOrder());
+        private final TreeMap<BigDecimal, L2OrderBook.Line> bids = new TreeMap<>(Comparator.reverseOrder());
+        private long sequence;
+        private volatile DepthView view;
+
+        private ProductDepth(String productId) {
+            this.productId = productId;
+        }
+
+        private synchronized void applySnapshot(L2OrderBook snapshot) {
+            if (view != null && snapshot.getSequence() <= sequence) {
+                return;
+            }
+            load(asks, snapshot.getAsks());
+            load(bids, snapshot.getBids());
+            sequence = snapshot.getSequence();
+            publish(snapshot.getTime());
+        }
+
+        private synchronized void applyIncrement(L2OrderBookIncrement increment) {
+            if (view == null || increment.getSequence() <= sequence) {
+                return;
+            }
+            if (increment.getPrevSequence() > sequence) {
+                // missed an increment, wait for the next snapshot
+                logger.warn("depth out of sync, waiting for a snapshot: productId={} sequence={} prev={}",
+                        productId, sequence, increment.getPrevSequence());
+                view = null;
+                return;
+            }
+            apply(asks, increment.getAsks());
+            apply(bids, increment.getBids());
+            sequence = increment.getSequence();
+            publish(increment.getTime());
+        }
+
+        private void load(TreeMap<BigDecimal, L2OrderBook.Line> levels, List<L2OrderBook.Line> lines) {
+            levels.clear();
+            for (L2OrderBook.Line line : lines) {
+                levels.put((BigDecimal) line.get(0), line);
+            }
+        }
+
+        private void apply(TreeMap<BigDecimal, L2OrderBook.Line> levels, List<L2OrderBook.Line> lines) {
+            for (L2OrderBook.Line line : lines) {
+                BigDecimal price = (BigDecimal) line.get(0);
+                if (((BigDecimal) line.get(1)).signum() == 0) {
+                    levels.remove(price);
+                } else {
+                    levels.put(price, line);
+                }
+            }
+        }
+
+        private void publish(long time) {
+            view = new DepthView(productId, sequence, time, new ArrayList<>(asks.values()),
+                    new ArrayList<>(bids.values()));
+        }
+    }
+
+    /**
+     * Immutable depth of one product at one sequence. Response bodies are rendered once per view and shape.
+     */
+    @Getter
+    public static class DepthView {
+        private final String productId;
+        private final long sequence;
+        private final long time;
+        private final List<L2OrderBook.Line> asks;
+        private final List<L2OrderBook.Line> bids;
+        @Getter(AccessLevel.NONE)
+        private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+
+        private DepthView(String productId, long sequence, long time, List<L2OrderBook.Line> asks,
+                          List<L2OrderBook.Line> bids) {
+            this.productId = productId;
+            this.sequence = sequence;
+            this.time = time;
+            this.asks = asks;
+            this.bids = bids;
+        }
+
+        public String getETag() {
+            return "\"" + sequence + "\"";
+        }
+
+        /**
+         * {"asks": [[price, size], ...], "bids": [[price, size], ...]}
+         */
+        public byte[] peatioBody(int asksLimit, int bidsLimit) {
+            int askCount = Math.max(0, Math.min(asksLimit, asks.size()));
+            int bidCount = Math.max(0, Math.min(bidsLimit, bids.size()));
+            return bodies.computeIfAbsent("peatio:" + askCount + ":" + bidCount, k -> {
+                Map<String, List<List<BigDecimal>>> result = new LinkedHashMap<>();
+                result.put("asks", priceSizeLines(asks, askCount));
+                result.put("bids", priceSizeLines(bids, bidCount));
+                return JSON.toJSONBytes(result);
+            });
+        }
+
+        /**
+         * The book in the {@link L2OrderBook} shape, limited to {@code depth} levels per side
+         */
+        public byte[] l2Body(int depth) {
+            int askCount = Math.max(0, Math.min(depth, asks.size()));
+            int bidCount = Math.max(0, Math.min(depth, bids.size()));
+            return bodies.computeIfAbsent("l2:" + askCount + ":" + bidCount, k -> {
+                L2OrderBook l2OrderBook = new L2OrderBook();
+                l2OrderBook.setProductId(productId);
+                l2OrderBook.setSequence(sequence);
+                l2OrderBook.setTime(time);
+                l2OrderBook.setAsks(asks.subList(0, askCount));
+                l2OrderBook.setBids(bids.subList(0, bidCount));
+                return JSON.toJSONBytes(l2OrderBook);
+            });
+        }
+
+        private static List<List<BigDecimal>> priceSizeLines(List<L2OrderBook.Line> lines, int count) {
+            List<List<BigDecimal>> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                L2OrderBook.Line line = lines.get(i);
+                result.add(List.of((BigDecimal) line.get(0), (BigDecimal) line.get(1)));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.custom.marketdata.orderbook;
+
+import com.custom.enums.OrderSide;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Price levels of the published window (the top {@link OrderBookSnapshotManager#L2_BATCH_DEPTH} levels per side)
+ * that changed between {@code prevSequence} and {@code sequence}. Each line carries the absolute state of the
+ * level ([price, size, count]); a size of zero means the level was removed or dropped out of the window. An
+ * increment applies to any book at a sequence from {@code prevSequence} up to {@code sequence}.
+ */
+@Getter
+@Setter
+public class L2OrderBookIncrement {
+    private String productId;
+    private long sequence;
+    private long prevSequence;
+    private long time;
+    private List<L2OrderBook.Line> asks = new ArrayList<>();
+    private List<L2OrderBook.Line> bids = new ArrayList<>();
+
+    public List<L2OrderBookChange> toChanges() {
+        List<L2OrderBookChange> changes = new ArrayList<>(asks.size() + bids.size());
+        for (L2OrderBook.Line line : asks) {
+            changes.add(new L2OrderBookChange(OrderSide.SELL.name().toLowerCase(), line.getPrice(), line.getSize()));
+        }
+        for (L2OrderBook.Line line : bids) {
+            changes.add(new L2OrderBookChange(OrderSide.BUY.name().toLowerCase(), line.getPrice(), line.getSize()));
+        }
+        return changes;
+    }
+}
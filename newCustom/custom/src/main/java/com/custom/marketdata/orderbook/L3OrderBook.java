@@ -1,5 +1,6 @@
 package com.custom.marketdata.orderbook;
 
+import com.custom.matchingengine.Depth;
 import com.custom.matchingengine.Order;
 import com.custom.matchingengine.OrderBook;
 import lombok.Getter;
@@ -26,11 +27,20 @@ public class L3OrderBook {
         this.productId = orderBook.getProductId();
         this.tradeId = orderBook.getTradeSequence();
         this.time = System.currentTimeMillis();
-        this.asks = orderBook.getAsks().values().stream()
-                .flatMap(x -> x.values().stream())
-                .map(Line::new)
-                .collect(Collectors.toList());
-        this.bids = orderBook.getBids().values().stream()
+        this.asks = lines(orderBook.getAsks());
+        this.bids = lines(orderBook.getBids());
+    }
+
+    public L3OrderBook(com.custom.marketdata.orderbook.OrderBook orderBook) {
+        this.productId = orderBook.getProductId();
+        this.sequence = orderBook.getSequence();
+        this.time = System.currentTimeMillis();
+        this.asks = lines(orderBook.getAsks());
+        this.bids = lines(orderBook.getBids());
+    }
+
+    private static List<Line> lines(Depth depth) {
+        return depth.values().stream()
                 .flatMap(x -> x.values().stream())
                 .map(Line::new)
                 .collect(Collectors.toList());
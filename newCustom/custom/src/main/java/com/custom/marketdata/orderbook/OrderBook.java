@@ -3,18 +3,40 @@ package com.custom.marketdata.orderbook;
 import com.custom.enums.OrderSide;
 import com.custom.matchingengine.Depth;
 import com.custom.matchingengine.Order;
+import com.custom.matchingengine.PriceGroupedOrderCollection;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Getter
 public class OrderBook {
     private final String productId;
     private final Depth asks = new Depth(Comparator.naturalOrder());
     private final Depth bids = new Depth(Comparator.reverseOrder());
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Order> orderById = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Set<BigDecimal> changedAsks = new TreeSet<>(Comparator.naturalOrder());
+    @Getter(AccessLevel.NONE)
+    private final Set<BigDecimal> changedBids = new TreeSet<>(Comparator.reverseOrder());
+    /**
+     * Prices in the top levels as of the last increment, what subscribers of the increments hold
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<BigDecimal> askWindow = new TreeSet<>();
+    @Getter(AccessLevel.NONE)
+    private final Set<BigDecimal> bidWindow = new TreeSet<>();
     @Setter
     private long sequence;
+    private long incrementSequence;
 
     public OrderBook(String productId) {
         this.productId = productId;
@@ -25,13 +47,106 @@ public class OrderBook {
         this.sequence = sequence;
     }
 
+    /**
+     * Adds an order, or updates it if it is already in the book. An update at the same price with a smaller size
+     * keeps the order's place in its price level, any other update moves it to the back, like the engine does.
+     */
     public void addOrder(Order order) {
+        Order previous = orderById.get(order.getId());
+        if (previous != null && (previous.getPrice().compareTo(order.getPrice()) != 0 ||
+                previous.getRemainingSize().compareTo(order.getRemainingSize()) < 0)) {
+            removeOrder(previous);
+        }
         var depth = order.getSide() == OrderSide.BUY ? bids : asks;
         depth.addOrder(order);
+        orderById.put(order.getId(), order);
+        changedLevels(order.getSide()).add(order.getPrice());
     }
 
     public void removeOrder(Order order) {
-        var depth = order.getSide() == OrderSide.BUY ? bids : asks;
-        depth.removeOrder(order);
+        // the order rests where it was last added, whatever price the update carries
+        Order resting = orderById.remove(order.getId());
+        if (resting == null || resting.getPrice() == null) {
+            return;
+        }
+        var depth = resting.getSide() == OrderSide.BUY ? bids : asks;
+        depth.removeOrder(resting);
+        changedLevels(resting.getSide()).add(resting.getPrice());
+    }
+
+    /**
+     * Drains the changes to the top {@code depth} levels of each side since the previous call into an increment
+     * chained to it through {@code prevSequence}. A level that moves into the window is sent as it is and a level
+     * that drops out of it is sent as removed, so that a subscriber seeded with a snapshot of the same depth keeps
+     * exactly that window. Returns null if the window did not change.
+     */
+    public L2OrderBookIncrement takeIncrement(int depth) {
+        if (changedAsks.isEmpty() && changedBids.isEmpty()) {
+            return null;
+        }
+
+        L2OrderBookIncrement increment = new L2OrderBookIncrement();
+        drainWindow(changedAsks, asks, askWindow, depth, increment.getAsks());
+        drainWindow(changedBids, bids, bidWindow, depth, increment.getBids());
+        if (increment.getAsks().isEmpty() && increment.getBids().isEmpty()) {
+            // only levels behind the window changed, the next increment still chains to the previous one
+            return null;
+        }
+        increment.setProductId(productId);
+        increment.setPrevSequence(incrementSequence);
+        increment.setSequence(sequence);
+        increment.setTime(System.currentTimeMillis());
+        incrementSequence = sequence;
+        return increment;
+    }
+
+    /**
+     * Forgets pending level changes, e.g. after the book was rebuilt from a snapshot. The next increment
+     * will not chain to any earlier one, which makes subscribers resync.
+     */
+    public void resetIncrement(int depth) {
+        changedAsks.clear();
+        changedBids.clear();
+        resetWindow(asks, askWindow, depth);
+        resetWindow(bids, bidWindow, depth);
+        incrementSequence = sequence;
+    }
+
+    private Set<BigDecimal> changedLevels(OrderSide side) {
+        return side == OrderSide.BUY ? changedBids : changedAsks;
+    }
+
+    private void drainWindow(Set<BigDecimal> changedPrices, Depth depth, Set<BigDecimal> window, int windowDepth,
+                             List<L2OrderBook.Line> lines) {
+        Set<BigDecimal> newWindow = new TreeSet<>();
+        for (var entry : depth.entrySet()) {
+            if (newWindow.size() == windowDepth) {
+                break;
+            }
+            BigDecimal price = entry.getKey();
+            newWindow.add(price);
+            if (changedPrices.contains(price) || !window.contains(price)) {
+                PriceGroupedOrderCollection orders = entry.getValue();
+                lines.add(new L2OrderBook.Line(price, orders.getRemainingSize(), orders.size()));
+            }
+        }
+        for (BigDecimal price : window) {
+            if (!newWindow.contains(price)) {
+                lines.add(new L2OrderBook.Line(price, BigDecimal.ZERO, 0));
+            }
+        }
+        window.clear();
+        window.addAll(newWindow);
+        changedPrices.clear();
+    }
+
+    private void resetWindow(Depth depth, Set<BigDecimal> window, int windowDepth) {
+        window.clear();
+        for (BigDecimal price : depth.keySet()) {
+            if (window.size() == windowDepth) {
+                break;
+            }
+            window.add(price);
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.custom.marketdata.orderbook;
+
+import lombok.SneakyThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.custom.marketdata.DecimalCodec.readDecimal;
+import static com.custom.marketdata.DecimalCodec.writeDecimal;
+
+/**
+ * Compact binary encoding of order book snapshots and increments stored in and published through Redis.
+ * <p>
+ * Every payload starts with a fixed header: version (byte), kind (byte), sequence (long), time (long), so that
+ * a reader can check the sequence with {@link #peekSequence(byte[])} before decoding the rest.
+ */
+public final class OrderBookCodec {
+    private static final byte VERSION = 1;
+    private static final byte KIND_L2 = 2;
+    private static final byte KIND_L3 = 3;
+    private static final byte KIND_L2_INCREMENT = 4;
+    private static final int SEQUENCE_OFFSET = 2;
+
+    private OrderBookCodec() {
+    }
+
+    public static long peekSequence(byte[] data) {
+        return ByteBuffer.wrap(data, SEQUENCE_OFFSET, Long.BYTES).getLong();
+    }
+
+    @SneakyThrows(IOException.class)
+    public static byte[] encode(L2OrderBook orderBook) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 24 * (orderBook.getAsks().size() +
+                orderBook.getBids().size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out, KIND_L2, orderBook.getSequence(), orderBook.getTime(), orderBook.getProductId());
+        writeL2Lines(out, orderBook.getAsks());
+        writeL2Lines(out, orderBook.getBids());
+        return bytes.toByteArray();
+    }
+
+    @SneakyThrows(IOException.class)
+    public static L2OrderBook decodeL2OrderBook(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readHeader(in, KIND_L2);
+        L2OrderBook orderBook = new L2OrderBook();
+        orderBook.setSequence(in.readLong());
+        orderBook.setTime(in.readLong());
+        orderBook.setProductId(in.readUTF());
+        orderBook.setAsks(readL2Lines(in));
+        orderBook.setBids(readL2Lines(in));
+        return orderBook;
+    }
+
+    @SneakyThrows(IOException.class)
+    public static byte[] encode(L2OrderBookIncrement increment) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 24 * (increment.getAsks().size() +
+                increment.getBids().size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out, KIND_L2_INCREMENT, increment.getSequence(), increment.getTime(), increment.getProductId());
+        out.writeLong(increment.getPrevSequence());
+        writeL2Lines(out, increment.getAsks());
+        writeL2Lines(out, increment.getBids());
+        return bytes.toByteArray();
+    }
+
+    @SneakyThrows(IOException.class)
+    public static L2OrderBookIncrement decodeL2OrderBookIncrement(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readHeader(in, KIND_L2_INCREMENT);
+        L2OrderBookIncrement increment = new L2OrderBookIncrement();
+        increment.setSequence(in.readLong());
+        increment.setTime(in.readLong());
+        increment.setProductId(in.readUTF());
+        increment.setPrevSequence(in.readLong());
+        increment.setAsks(readL2Lines(in));
+        increment.setBids(readL2Lines(in));
+        return increment;
+    }
+
+    @SneakyThrows(IOException.class)
+    public static byte[] encode(L3OrderBook orderBook) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 64 * (orderBook.getAsks().size() +
+                orderBook.getBids().size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out, KIND_L3, orderBook.getSequence(), orderBook.getTime(), orderBook.getProductId());
+        out.writeLong(orderBook.getTradeId());
+        writeL3Lines(out, orderBook.getAsks());
+        writeL3Lines(out, orderBook.getBids());
+        return bytes.toByteArray();
+    }
+
+    @SneakyThrows(IOException.class)
+    public static L3OrderBook decodeL3OrderBook(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        readHeader(in, KIND_L3);
+        L3OrderBook orderBook = new L3OrderBook();
+        orderBook.setSequence(in.readLong());
+        orderBook.setTime(in.readLong());
+        orderBook.setProductId(in.readUTF());
+        orderBook.setTradeId(in.readLong());
+        orderBook.setAsks(readL3Lines(in));
+        orderBook.setBids(readL3Lines(in));
+        return orderBook;
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind, long sequence, long time, String productId)
+            throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeLong(sequence);
+        out.writeLong(time);
+        out.writeUTF(productId);
+    }
+
+    private static void readHeader(DataInputStream in, byte kind) throws IOException {
+        byte version = in.readByte();
+        byte actualKind = in.readByte();
+        if (version != VERSION || actualKind != kind) {
+            throw new IOException("unexpected order book payload: version=" + version + ", kind=" + actualKind);
+        }
+    }
+
+    private static void writeL2Lines(DataOutputStream out, List<L2OrderBook.Line> lines) throws IOException {
+        out.writeInt(lines.size());
+        for (L2OrderBook.Line line : lines) {
+            writeDecimal(out, decimal(line.get(0)));
+            writeDecimal(out, decimal(line.get(1)));
+            out.writeInt(((Number) line.get(2)).intValue());
+        }
+    }
+
+    private static List<L2OrderBook.Line> readL2Lines(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<L2OrderBook.Line> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(new L2OrderBook.Line(readDecimal(in), readDecimal(in), in.readInt()));
+        }
+        return lines;
+    }
+
+    private static void writeL3Lines(DataOutputStream out, List<L3OrderBook.Line> lines) throws IOException {
+        out.writeInt(lines.size());
+        for (L3OrderBook.Line line : lines) {
+            out.writeUTF(line.get(0).toString());
+            writeDecimal(out, decimal(line.get(1)));
+            writeDecimal(out, decimal(line.get(2)));
+        }
+    }
+
+    private static List<L3OrderBook.Line> readL3Lines(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<L3OrderBook.Line> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            L3OrderBook.Line line = new L3OrderBook.Line();
+            line.add(in.readUTF());
+            line.add(readDecimal(in).toPlainString());
+            line.add(readDecimal(in).toPlainString());
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
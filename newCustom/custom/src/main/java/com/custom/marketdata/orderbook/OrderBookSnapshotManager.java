@@ -2,33 +2,48 @@ package com.custom.marketdata.orderbook;
 
 import com.alibaba.fastjson.JSON;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RTopic;
+import org.redisson.api.RBatch;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.redisson.client.codec.StringCodec;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Component
 @Slf4j
 public class OrderBookSnapshotManager {
+    public static final String L2_BATCH_TOPIC = "l2_batch.bin";
+    public static final String L2_INCREMENT_TOPIC = "l2_increment.bin";
+    /**
+     * Number of levels per side in the stored and published level 2 snapshots
+     */
+    public static final int L2_BATCH_DEPTH = 25;
+
     private final RedissonClient redissonClient;
-    private final RTopic l2BatchNotifyTopic;
+    /**
+     * Last decoded snapshot per product. Shared by all readers, so it must not be modified
+     */
+    private final ConcurrentHashMap<String, L2OrderBook> decodedL2BatchOrderBooks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, L3OrderBook> decodedL3OrderBooks = new ConcurrentHashMap<>();
 
     public OrderBookSnapshotManager(RedissonClient redissonClient) {
         this.redissonClient = redissonClient;
-        this.l2BatchNotifyTopic = redissonClient.getTopic("l2_batch", StringCodec.INSTANCE);
-    }
-
-    public void saveL3OrderBook(L3OrderBook l3OrderBook) {
-        redissonClient.getBucket(keyForL3(l3OrderBook.getProductId()), StringCodec.INSTANCE).set(
-                JSON.toJSONString(l3OrderBook));
     }
 
     public L3OrderBook getL3OrderBook(String productId) {
-        Object o = redissonClient.getBucket(keyForL3(productId), StringCodec.INSTANCE).get();
-        if (o == null) {
+        byte[] data = (byte[]) redissonClient.getBucket(keyForL3(productId), ByteArrayCodec.INSTANCE).get();
+        if (data == null) {
             return null;
         }
-        return JSON.parseObject(o.toString(), L3OrderBook.class);
+        L3OrderBook cached = decodedL3OrderBooks.get(productId);
+        if (cached != null && cached.getSequence() == OrderBookCodec.peekSequence(data)) {
+            return cached;
+        }
+        L3OrderBook l3OrderBook = OrderBookCodec.decodeL3OrderBook(data);
+        decodedL3OrderBooks.put(productId, l3OrderBook);
+        return l3OrderBook;
     }
 
     public void saveL2OrderBook(L2OrderBook l2OrderBook) {
@@ -44,19 +59,50 @@ public class OrderBookSnapshotManager {
         return JSON.parseObject(o.toString(), L2OrderBook.class);
     }
 
-    public void saveL2BatchOrderBook(L2OrderBook l2OrderBook) {
-        String data = JSON.toJSONString(l2OrderBook);
-        redissonClient.getBucket(keyForL2Batch(l2OrderBook.getProductId()), StringCodec.INSTANCE)
-                .setAsync(data);
-        l2BatchNotifyTopic.publishAsync(data);
+    /**
+     * Publishes the increments of one snapshot cycle, then stores and publishes its level 2 snapshots and stores
+     * its level 3 snapshots, all in a single Redis pipeline. Increments go first so that a snapshot never gets
+     * ahead of them.
+     */
+    public void publish(Collection<L2OrderBookIncrement> increments, Collection<L2OrderBook> l2OrderBooks,
+                        Collection<L3OrderBook> l3OrderBooks) {
+        if (increments.isEmpty() && l2OrderBooks.isEmpty() && l3OrderBooks.isEmpty()) {
+            return;
+        }
+
+        RBatch batch = redissonClient.createBatch();
+        for (L2OrderBookIncrement increment : increments) {
+            batch.getTopic(L2_INCREMENT_TOPIC, ByteArrayCodec.INSTANCE).publishAsync(OrderBookCodec.encode(increment));
+        }
+        for (L2OrderBook l2OrderBook : l2OrderBooks) {
+            byte[] data = OrderBookCodec.encode(l2OrderBook);
+            batch.getBucket(keyForL2Batch(l2OrderBook.getProductId()), ByteArrayCodec.INSTANCE).setAsync(data);
+            batch.getTopic(L2_BATCH_TOPIC, ByteArrayCodec.INSTANCE).publishAsync(data);
+        }
+        for (L3OrderBook l3OrderBook : l3OrderBooks) {
+            batch.getBucket(keyForL3(l3OrderBook.getProductId()), ByteArrayCodec.INSTANCE)
+                    .setAsync(OrderBookCodec.encode(l3OrderBook));
+        }
+        batch.executeAsync().whenComplete((r, e) -> {
+            if (e != null) {
+                logger.error("publish order book snapshots error: {}", e.getMessage(), e);
+            }
+        });
     }
 
     public L2OrderBook getL2BatchOrderBook(String productId) {
-        Object o = redissonClient.getBucket(keyForL2Batch(productId), StringCodec.INSTANCE).get();
-        if (o == null) {
+        byte[] data = (byte[]) redissonClient.getBucket(keyForL2Batch(productId), ByteArrayCodec.INSTANCE).get();
+        if (data == null) {
             return null;
         }
-        return JSON.parseObject(o.toString(), L2OrderBook.class);
+        // the bucket only changes once per snapshot cycle, most reads find the same sequence
+        L2OrderBook cached = decodedL2BatchOrderBooks.get(productId);
+        if (cached != null && cached.getSequence() == OrderBookCodec.peekSequence(data)) {
+            return cached;
+        }
+        L2OrderBook l2OrderBook = OrderBookCodec.decodeL2OrderBook(data);
+        decodedL2BatchOrderBooks.put(productId, l2OrderBook);
+        return l2OrderBook;
     }
 
     public L2OrderBook getL1OrderBook(String productId) {
@@ -76,10 +122,10 @@ public class OrderBookSnapshotManager {
     }
 
     private String keyForL2Batch(String productId) {
-        return productId + ".l2_batch_order_book";
+        return productId + ".l2_batch_order_book.bin";
     }
 
     private String keyForL3(String productId) {
-        return productId + ".l3_order_book";
+        return productId + ".l3_order_book.bin";
     }
 }
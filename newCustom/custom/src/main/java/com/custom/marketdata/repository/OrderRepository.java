@@ -3,6 +3,7 @@ package com.custom.marketdata.repository;
 import com.custom.enums.OrderSide;
 import com.custom.enums.OrderStatus;
 import com.custom.marketdata.entity.OrderEntity;
+import com.custom.openapi.model.CursorPagedList;
 import com.custom.openapi.model.PagedList;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Component
@@ -20,7 +22,12 @@ public class OrderRepository {
 
     public OrderRepository(MongoDatabase database) {
         this.collection = database.getCollection(OrderEntity.class.getSimpleName().toLowerCase(), OrderEntity.class);
-        this.collection.createIndex(Indexes.descending("userId", "productId", "sequence"));
+        // equality fields first, then the sort keys used as the pagination cursor
+        this.collection.createIndex(Indexes.descending("userId", "sequence", "_id"));
+        this.collection.createIndex(Indexes.descending("userId", "productId", "sequence", "_id"));
+        this.collection.createIndex(Indexes.descending("userId", "status", "sequence", "_id"));
+        this.collection.createIndex(Indexes.descending("userId", "productId", "status", "sequence", "_id"));
+        this.collection.createIndex(Indexes.descending("userId", "productId", "status", "side", "sequence", "_id"));
     }
 
     public OrderEntity findByOrderId(String orderId) {
@@ -31,6 +38,64 @@ public class OrderRepository {
 
     public PagedList<OrderEntity> findAll(String userId, String productId, OrderStatus status, OrderSide side, int pageIndex,
                                           int pageSize) {
+        return findAll(userId, productId, status, side, pageIndex, pageSize, true);
+    }
+
+    public PagedList<OrderEntity> findAll(String userId, String productId, OrderStatus status, OrderSide side, int pageIndex,
+                                          int pageSize, boolean withCount) {
+        Bson filter = filter(userId, productId, status, side);
+        long count = withCount ? this.collection.countDocuments(filter) : -1;
+        List<OrderEntity> orders = this.collection
+                .find(filter)
+                .sort(Sorts.descending("sequence", "_id"))
+                .skip((pageIndex - 1) * pageSize)
+                .limit(pageSize)
+                .into(new ArrayList<>());
+        return new PagedList<>(orders, count);
+    }
+
+    /**
+     * Returns the orders that sort after {@code before} (newest first), or the first page if it is null. Unlike
+     * offset paging the cost of a page does not grow with its depth.
+     *
+     * @throws IllegalArgumentException if {@code before} is not a cursor returned by a previous page
+     */
+    public CursorPagedList<OrderEntity> findAll(String userId, String productId, OrderStatus status, OrderSide side,
+                                                String before, int limit, boolean withCount) {
+        Bson filter = filter(userId, productId, status, side);
+        long count = withCount ? this.collection.countDocuments(filter) : -1;
+        if (before != null) {
+            // sequences are per product, so the order id breaks ties between products
+            int separator = before.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("invalid cursor: " + before);
+            }
+            long sequence;
+            try {
+                sequence = Long.parseLong(before.substring(0, separator));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid cursor: " + before);
+            }
+            String orderId = before.substring(separator + 1);
+            filter = Filters.and(filter, Filters.or(
+                    Filters.lt("sequence", sequence),
+                    Filters.and(Filters.eq("sequence", sequence), Filters.lt("_id", orderId))));
+        }
+
+        List<OrderEntity> orders = this.collection
+                .find(filter)
+                .sort(Sorts.descending("sequence", "_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
+        String nextCursor = null;
+        if (orders.size() == limit) {
+            OrderEntity last = orders.get(orders.size() - 1);
+            nextCursor = last.getSequence() + ":" + last.getId();
+        }
+        return new CursorPagedList<>(orders, count, nextCursor);
+    }
+
+    private Bson filter(String userId, String productId, OrderStatus status, OrderSide side) {
         Bson filter = Filters.empty();
         if (userId != null) {
             filter = Filters.and(Filters.eq("userId", userId), filter);
@@ -44,15 +109,7 @@ public class OrderRepository {
         if (side != null) {
             filter = Filters.and(Filters.eq("side", side.name()), filter);
         }
-
-        long count = this.collection.countDocuments(filter);
-        List<OrderEntity> orders = this.collection
-                .find(filter)
-                .sort(Sorts.descending("sequence"))
-                .skip(pageIndex - 1)
-                .limit(pageSize)
-                .into(new ArrayList<>());
-        return new PagedList<>(orders, count);
+        return filter;
     }
 
     public void saveAll(Collection<OrderEntity> orders) {
@@ -65,40 +122,36 @@ public class OrderRepository {
         collection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
     }
 
-    public OrderEntity findBotOrderByPriceAndSide(String productId, String price, String side, boolean isBot) {
-        Bson filter = Filters.and(
-                Filters.eq("productId", productId),
-                Filters.eq("price", price),
-                Filters.eq("side", side),
-                Filters.eq("isBot", isBot),
-                Filters.eq("status", OrderStatus.OPEN.name())
-        );
-
-        return this.collection
-                .find(filter)
-                .sort(Sorts.ascending("time"))  // Get the oldest order first
-                .first();
-    }
-
     /**
-     * Find bot orders that need to be cancelled because they are no longer in the target orderbook
+     * Upserts the mutable state of each order. Fields that are fixed when the order is placed are only written
+     * when the document is created.
      */
-    public List<OrderEntity> findBotOrdersToCancel(String productId, List<String> pricesToKeep, String side, boolean isBot) {
-        Bson filter = Filters.and(
-                Filters.eq("productId", productId),
-                Filters.eq("side", side),
-                Filters.eq("isBot", isBot),
-                Filters.eq("status", OrderStatus.OPEN.name())
-        );
-
-        // If we have prices to keep, add a filter to exclude them
-        if (pricesToKeep != null && !pricesToKeep.isEmpty()) {
-            filter = Filters.and(filter, Filters.nin("price", pricesToKeep));
+    public void updateAll(Collection<OrderEntity> orders) {
+        Date now = new Date();
+        List<WriteModel<OrderEntity>> writeModels = new ArrayList<>();
+        for (OrderEntity item : orders) {
+            Bson filter = Filters.eq("_id", item.getId());
+            Bson update = Updates.combine(
+                    Updates.set("status", item.getStatus().name()),
+                    Updates.set("filledSize", item.getFilledSize()),
+                    Updates.set("executedValue", item.getExecutedValue()),
+                    // a replaced order changes these after it was created
+                    Updates.set("size", item.getSize()),
+                    Updates.set("funds", item.getFunds()),
+                    Updates.set("price", item.getPrice()),
+                    Updates.set("updatedAt", now),
+                    Updates.setOnInsert("createdAt", now),
+                    Updates.setOnInsert("sequence", item.getSequence()),
+                    Updates.setOnInsert("productId", item.getProductId()),
+                    Updates.setOnInsert("userId", item.getUserId()),
+                    Updates.setOnInsert("clientOid", item.getClientOid()),
+                    Updates.setOnInsert("time", item.getTime()),
+                    Updates.setOnInsert("type", item.getType().name()),
+                    Updates.setOnInsert("side", item.getSide().name()),
+                    Updates.setOnInsert("settled", item.isSettled()),
+                    Updates.setOnInsert("postOnly", item.isPostOnly()));
+            writeModels.add(new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
         }
-
-        return this.collection
-                .find(filter)
-                .into(new ArrayList<>());
+        collection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
     }
-
 }
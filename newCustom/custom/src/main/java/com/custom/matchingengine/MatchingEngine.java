@@ -1,9 +1,11 @@
 package com.custom.matchingengine;
 
 import com.alibaba.fastjson.JSON;
+import com.custom.enums.OrderStatus;
 import com.custom.matchingengine.command.*;
 import com.custom.matchingengine.message.CommandEndMessage;
 import com.custom.matchingengine.message.CommandStartMessage;
+import com.custom.matchingengine.message.OrderResult;
 import com.custom.matchingengine.snapshot.EngineSnapshotManager;
 import com.custom.matchingengine.snapshot.EngineState;
 import io.micrometer.core.instrument.Counter;
@@ -11,7 +13,9 @@ import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -42,10 +46,18 @@ public class MatchingEngine {
         commandProcessedCounter.increment();
 
         sendCommandStartMessage(command, offset);
+        List<OrderResult> results = null;
         if (command instanceof PlaceOrderCommand placeOrderCommand) {
             executeCommand(placeOrderCommand);
         } else if (command instanceof CancelOrderCommand cancelOrderCommand) {
             executeCommand(cancelOrderCommand);
+        } else if (command instanceof ReplaceOrderCommand replaceOrderCommand) {
+            OrderStatus status = executeCommand(replaceOrderCommand);
+            results = List.of(new OrderResult(replaceOrderCommand.getOrderId(), status));
+        } else if (command instanceof BatchPlaceOrderCommand batchPlaceOrderCommand) {
+            results = executeCommand(batchPlaceOrderCommand);
+        } else if (command instanceof BatchCancelOrderCommand batchCancelOrderCommand) {
+            results = executeCommand(batchCancelOrderCommand);
         } else if (command instanceof DepositCommand depositCommand) {
             executeCommand(depositCommand);
         } else if (command instanceof PutProductCommand putProductCommand) {
@@ -53,7 +65,7 @@ public class MatchingEngine {
         } else {
             logger.warn("Unhandled command: {} {}", command.getClass().getName(), JSON.toJSONString(command));
         }
-        sendCommandEndMessage(command, offset);
+        sendCommandEndMessage(command, offset, results);
     }
 
     private void executeCommand(DepositCommand command) {
@@ -66,22 +78,47 @@ public class MatchingEngine {
         createOrderBook(command.getProductId());
     }
 
-    private void executeCommand(PlaceOrderCommand command) {
+    private OrderStatus executeCommand(PlaceOrderCommand command) {
         OrderBook orderBook = orderBooks.get(command.getProductId());
         if (orderBook == null) {
             logger.warn("no such order book: {}", command.getProductId());
-            return;
+            return OrderStatus.REJECTED;
         }
-        orderBook.placeOrder(new Order(command));
+        return orderBook.placeOrder(new Order(command));
     }
 
-    private void executeCommand(CancelOrderCommand command) {
+    private OrderStatus executeCommand(CancelOrderCommand command) {
         OrderBook orderBook = orderBooks.get(command.getProductId());
         if (orderBook == null) {
             logger.warn("no such order book: {}", command.getProductId());
-            return;
+            return OrderStatus.REJECTED;
+        }
+        return orderBook.cancelOrder(command.getOrderId()) ? OrderStatus.CANCELLED : OrderStatus.REJECTED;
+    }
+
+    private OrderStatus executeCommand(ReplaceOrderCommand command) {
+        OrderBook orderBook = orderBooks.get(command.getProductId());
+        if (orderBook == null) {
+            logger.warn("no such order book: {}", command.getProductId());
+            return OrderStatus.REJECTED;
+        }
+        return orderBook.replaceOrder(command.getOrderId(), command.getPrice(), command.getRemainingSize());
+    }
+
+    private List<OrderResult> executeCommand(BatchPlaceOrderCommand command) {
+        List<OrderResult> results = new ArrayList<>(command.getOrders().size());
+        for (PlaceOrderCommand order : command.getOrders()) {
+            results.add(new OrderResult(order.getOrderId(), executeCommand(order)));
+        }
+        return results;
+    }
+
+    private List<OrderResult> executeCommand(BatchCancelOrderCommand command) {
+        List<OrderResult> results = new ArrayList<>(command.getOrders().size());
+        for (CancelOrderCommand order : command.getOrders()) {
+            results.add(new OrderResult(order.getOrderId(), executeCommand(order)));
         }
-        orderBook.cancelOrder(command.getOrderId());
+        return results;
     }
 
     private void sendCommandStartMessage(Command command, long offset) {
@@ -91,10 +128,11 @@ public class MatchingEngine {
         messageSender.send(message);
     }
 
-    private void sendCommandEndMessage(Command command, long offset) {
+    private void sendCommandEndMessage(Command command, long offset, List<OrderResult> results) {
         CommandEndMessage message = new CommandEndMessage();
         message.setSequence(messageSequence.incrementAndGet());
         message.setCommandOffset(offset);
+        message.setResults(results);
         messageSender.send(message);
     }
 
@@ -44,11 +44,14 @@ public class OrderBook {
         this.messageSequence = messageSequence;
     }
 
-    public void placeOrder(Order takerOrder) {
+    /**
+     * Places an order and returns the status it ended up with.
+     */
+    public OrderStatus placeOrder(Order takerOrder) {
         var product = productBook.getProduct(productId);
         if (product == null) {
             logger.warn("order rejected, reason: PRODUCT_NOT_FOUND");
-            return;
+            return OrderStatus.REJECTED;
         }
 
         takerOrder.setSequence(++orderSequence);
@@ -63,13 +66,75 @@ public class OrderBook {
             logger.warn("order rejected, reason: INSUFFICIENT_FUNDS: {}", JSON.toJSONString(takerOrder));
             takerOrder.setStatus(OrderStatus.REJECTED);
             messageSender.send(orderMessage(takerOrder.clone()));
-            return;
+            return OrderStatus.REJECTED;
         }
 
         // order received
         takerOrder.setStatus(OrderStatus.RECEIVED);
         messageSender.send(orderMessage(takerOrder.clone()));
 
+        matchOrder(takerOrder, product);
+        return takerOrder.getStatus();
+    }
+
+    /**
+     * Amends a resting order. A smaller size at the same price is applied in place and the order keeps its
+     * place in the queue, a bigger size puts it at the back of its price level. A new price takes the order out
+     * of the book and matches it again at that price, like a new order. A remaining size of zero cancels it, and a
+     * replace that changes nothing leaves the book as it is.
+     * <p>
+     * Returns the status of the order afterwards, or REJECTED if it is not in the book.
+     */
+    public OrderStatus replaceOrder(String orderId, BigDecimal price, BigDecimal remainingSize) {
+        var order = orderById.get(orderId);
+        if (order == null) {
+            return OrderStatus.REJECTED;
+        }
+        if (remainingSize == null || remainingSize.compareTo(BigDecimal.ZERO) <= 0) {
+            return cancelOrder(orderId) ? OrderStatus.CANCELLED : OrderStatus.REJECTED;
+        }
+        boolean repriced = price != null && price.compareTo(order.getPrice()) != 0;
+        if (!repriced && remainingSize.compareTo(order.getRemainingSize()) == 0) {
+            // nothing changes, neither the book sequence nor a message
+            return order.getStatus();
+        }
+        var product = productBook.getProduct(productId);
+        if (product == null) {
+            logger.warn("order replace rejected, reason: PRODUCT_NOT_FOUND");
+            return OrderStatus.REJECTED;
+        }
+
+        boolean keepPriority = !repriced && remainingSize.compareTo(order.getRemainingSize()) <= 0;
+        if (!keepPriority) {
+            var depth = order.getSide() == OrderSide.BUY ? bids : asks;
+            depth.removeOrder(order);
+            orderById.remove(orderId);
+        }
+
+        // what has been filled so far stays, the new size and funds are counted on top of it
+        BigDecimal filledSize = order.getSize().subtract(order.getRemainingSize());
+        BigDecimal executedValue = order.getFunds().subtract(order.getRemainingFunds());
+        if (repriced) {
+            order.setPrice(price);
+        }
+        order.setSize(filledSize.add(remainingSize));
+        order.setRemainingSize(remainingSize);
+        order.setFunds(order.getSize().multiply(order.getPrice()));
+        order.setRemainingFunds(order.getFunds().subtract(executedValue));
+
+        if (repriced) {
+            matchOrder(order, product);
+            return order.getStatus();
+        }
+        if (!keepPriority) {
+            addOrder(order);
+        }
+        orderBookSequence++;
+        messageSender.send(orderMessage(order.clone()));
+        return order.getStatus();
+    }
+
+    private void matchOrder(Order takerOrder, Product product) {
         // start matching
         var makerDepth = takerOrder.getSide() == OrderSide.BUY ? asks : bids;
         var depthEntryItr = makerDepth.entrySet().iterator();
@@ -136,10 +201,13 @@ public class OrderBook {
         messageSender.send(orderMessage(takerOrder.clone()));
     }
 
-    public void cancelOrder(String orderId) {
+    /**
+     * Cancels an order, returns false if it is not in the book.
+     */
+    public boolean cancelOrder(String orderId) {
         var order = orderById.remove(orderId);
         if (order == null) {
-            return;
+            return false;
         }
 
         // remove order from depth
@@ -147,12 +215,14 @@ public class OrderBook {
         depth.removeOrder(order);
 
         order.setStatus(OrderStatus.CANCELLED);
+        orderBookSequence++;
 
         messageSender.send(orderMessage(order.clone()));
 
         // un-hold funds
         var product = productBook.getProduct(productId);
         //unholdOrderFunds(order, product);
+        return true;
     }
 
     private Trade trade(Order takerOrder, Order makerOrder) {
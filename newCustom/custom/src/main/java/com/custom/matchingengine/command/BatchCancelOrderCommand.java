@@ -0,0 +1,26 @@
+package com.custom.matchingengine.command;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancels several orders, possibly on different products, under a single command offset. The outcome of each
+ * cancel is reported in the {@code CommandEndMessage}.
+ */
+@Getter
+@Setter
+public class BatchCancelOrderCommand extends Command {
+    /**
+     * Most orders a single command should carry, larger batches are split by the sender
+     */
+    public static final int MAX_ORDERS = 1000;
+
+    private List<CancelOrderCommand> orders = new ArrayList<>();
+
+    public BatchCancelOrderCommand() {
+        this.setType(CommandType.BATCH_CANCEL_ORDER);
+    }
+}
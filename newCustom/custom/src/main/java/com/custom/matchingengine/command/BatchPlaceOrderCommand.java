@@ -0,0 +1,26 @@
+package com.custom.matchingengine.command;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Places several orders, possibly on different products, under a single command offset. The orders are placed
+ * in list order and the outcome of each is reported in the {@code CommandEndMessage}.
+ */
+@Getter
+@Setter
+public class BatchPlaceOrderCommand extends Command {
+    /**
+     * Most orders a single command should carry, larger batches are split by the sender
+     */
+    public static final int MAX_ORDERS = 500;
+
+    private List<PlaceOrderCommand> orders = new ArrayList<>();
+
+    public BatchPlaceOrderCommand() {
+        this.setType(CommandType.BATCH_PLACE_ORDER);
+    }
+}
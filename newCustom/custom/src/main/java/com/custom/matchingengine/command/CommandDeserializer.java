@@ -21,6 +21,12 @@ public class CommandDeserializer implements Deserializer<Command> {
                         PlaceOrderCommand.class);
                 case CANCEL_ORDER -> JSON.parseObject(bytes, 1, bytes.length - 1, Charset.defaultCharset(),
                         CancelOrderCommand.class);
+                case REPLACE_ORDER -> JSON.parseObject(bytes, 1, bytes.length - 1, Charset.defaultCharset(),
+                        ReplaceOrderCommand.class);
+                case BATCH_PLACE_ORDER -> JSON.parseObject(bytes, 1, bytes.length - 1, Charset.defaultCharset(),
+                        BatchPlaceOrderCommand.class);
+                case BATCH_CANCEL_ORDER -> JSON.parseObject(bytes, 1, bytes.length - 1, Charset.defaultCharset(),
+                        BatchCancelOrderCommand.class);
                 default -> {
                     logger.warn("Unhandled order message type: {}", commandType);
                     yield JSON.parseObject(bytes, 1, bytes.length - 1, Charset.defaultCharset(),
@@ -8,7 +8,10 @@ public enum CommandType {
     CANCEL_ORDER((byte) 2),
     DEPOSIT((byte) 3),
     WITHDRAWAL((byte) 4),
-    PUT_PRODUCT((byte) 5);
+    PUT_PRODUCT((byte) 5),
+    REPLACE_ORDER((byte) 6),
+    BATCH_PLACE_ORDER((byte) 7),
+    BATCH_CANCEL_ORDER((byte) 8);
 
     private final byte byteValue;
 
@@ -28,6 +28,13 @@ public class MatchingEngineCommandProducer {
         kafkaProducer.send(record, callback);
     }
 
+    /**
+     * Sends everything buffered by {@link #send} without waiting for {@code linger.ms}.
+     */
+    public void flush() {
+        kafkaProducer.flush();
+    }
+
     public KafkaProducer<String, Command> kafkaProducer() {
         Properties properties = new Properties();
         properties.put("bootstrap.servers", kafkaProperties.getBootstrapServers());
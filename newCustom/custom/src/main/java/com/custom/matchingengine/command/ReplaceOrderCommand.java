@@ -0,0 +1,25 @@
+package com.custom.matchingengine.command;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class ReplaceOrderCommand extends Command {
+    private String productId;
+    private String orderId;
+    /**
+     * New limit price, null to keep the current one
+     */
+    private BigDecimal price;
+    /**
+     * Size left open once the order is replaced, zero cancels it
+     */
+    private BigDecimal remainingSize;
+
+    public ReplaceOrderCommand() {
+        this.setType(CommandType.REPLACE_ORDER);
+    }
+}
@@ -3,10 +3,16 @@ package com.custom.matchingengine.message;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class CommandEndMessage extends Message {
     private long commandOffset;
+    /**
+     * Per order outcome of a batch or replace command, in command order, null for other commands
+     */
+    private List<OrderResult> results;
 
     public CommandEndMessage() {
         this.setMessageType(MessageType.COMMAND_END);
@@ -0,0 +1,23 @@
+package com.custom.matchingengine.message;
+
+import com.custom.enums.OrderStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of one order of a batch or replace command: the status the order ended up with, or {@code REJECTED} when the
+ * item could not be applied, e.g. an unknown product or an order that is no longer open.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderResult {
+    private String orderId;
+    private OrderStatus status;
+
+    public OrderResult(String orderId, OrderStatus status) {
+        this.orderId = orderId;
+        this.status = status;
+    }
+}
@@ -15,12 +15,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.bson.conversions.Bson;
 import org.springframework.stereotype.Component;
 
-import com.custom.marketdata.orderbook.L2OrderBook;
-import org.redisson.api.RedissonClient;
-import org.redisson.api.RBucket;
-import org.redisson.client.codec.StringCodec;
-import com.alibaba.fastjson.JSON;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -35,31 +29,13 @@ public class EngineSnapshotManager {
     private final MongoCollection<Product> productCollection;
     private final MongoClient mongoClient;
 
-    private final RedissonClient redissonClient;
-
-    public EngineSnapshotManager(MongoClient mongoClient, MongoDatabase database, RedissonClient redissonClient) {
+    public EngineSnapshotManager(MongoClient mongoClient, MongoDatabase database) {
         this.mongoClient = mongoClient;
         this.engineStateCollection = database.getCollection("snapshot_engine", EngineState.class);
         this.accountCollection = database.getCollection("snapshot_account", Account.class);
         this.orderCollection = database.getCollection("snapshot_order", Order.class);
         this.orderCollection.createIndex(Indexes.descending("product_id", "sequence"), new IndexOptions().unique(true));
         this.productCollection = database.getCollection("snapshot_product", Product.class);
-        this.redissonClient = redissonClient;
-    }
-
-    /**
-     * Get the local orderbook from Redis for a given productId.
-     * @param productId the product id
-     * @return L2OrderBook or null if not found
-     */
-    public L2OrderBook getLocalOrderBookFromRedis(String productId) {
-        String redisKey = "orderbook:l2:" + productId;
-        RBucket<String> bucket = redissonClient.getBucket(redisKey, StringCodec.INSTANCE);
-        String json = bucket.get();
-        if (json == null) {
-            return null;
-        }
-        return JSON.parseObject(json, L2OrderBook.class);
     }
 
     public void runInSession(Consumer<ClientSession> consumer) {
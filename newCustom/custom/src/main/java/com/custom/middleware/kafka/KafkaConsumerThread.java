@@ -47,6 +47,7 @@ public abstract class KafkaConsumerThread<K, V> extends Thread {
             logger.error("consumer error: {}", e.getMessage(), e);
         } finally {
             consumer.close();
+            doClose();
         }
         logger.info("exiting...");
     }
@@ -65,4 +66,10 @@ public abstract class KafkaConsumerThread<K, V> extends Thread {
     protected abstract void doSubscribe();
 
     protected abstract void doPoll();
+
+    /**
+     * Releases resources owned by the thread, called once the consumer is closed
+     */
+    protected void doClose() {
+    }
 }
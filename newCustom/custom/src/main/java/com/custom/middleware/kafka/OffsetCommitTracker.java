@@ -0,0 +1,120 @@
+package com.custom.middleware.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Tracks polled batches whose processing completes asynchronously and possibly out of order. Offsets only
+ * advance to the end of the longest run of completed batches, so a commit never skips records that have not
+ * been durably processed yet.
+ * <p>
+ * Everything except {@link Batch#complete(Throwable)} must be called from the consumer thread.
+ */
+public class OffsetCommitTracker {
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private final Semaphore inFlightPermits;
+
+    public OffsetCommitTracker(int maxInFlightBatches) {
+        this.inFlightPermits = new Semaphore(maxInFlightBatches);
+    }
+
+    /**
+     * Registers the records of one poll, blocking while too many batches are still in flight.
+     */
+    public Batch begin(ConsumerRecords<?, ?> records) {
+        inFlightPermits.acquireUninterruptibly();
+        Batch batch = new Batch(new HashMap<>(), inFlightPermits);
+        addOffsets(batch, records);
+        batches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Adds the records of a later poll to the most recent batch, which must not have completed yet. Lets a
+     * consumer accumulate several polls into one write.
+     */
+    public void append(Batch batch, ConsumerRecords<?, ?> records) {
+        if (batch != batches.peekLast() || batch.done.isDone()) {
+            throw new IllegalStateException("only the most recent pending batch can be extended");
+        }
+        addOffsets(batch, records);
+    }
+
+    /**
+     * Removes the completed batches at the head of the queue and returns the offsets to commit for them.
+     *
+     * @throws IllegalStateException if the oldest completed batch failed
+     */
+    public Map<TopicPartition, OffsetAndMetadata> pollCommittable() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = null;
+        Batch batch;
+        while ((batch = batches.peek()) != null && batch.done.isDone()) {
+            if (batch.done.isCompletedExceptionally()) {
+                try {
+                    batch.done.join();
+                } catch (CompletionException e) {
+                    throw new IllegalStateException("batch processing failed: " + e.getCause().getMessage(),
+                            e.getCause());
+                }
+            }
+            batches.poll();
+            if (offsets == null) {
+                offsets = new HashMap<>();
+            }
+            offsets.putAll(batch.offsets);
+        }
+        return offsets != null ? offsets : Collections.emptyMap();
+    }
+
+    /**
+     * Waits for every batch in flight, e.g. before partitions are revoked, and returns the offsets to commit.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> awaitCommittable() {
+        for (Batch batch : batches) {
+            try {
+                batch.done.join();
+            } catch (CompletionException ignored) {
+                // reported by pollCommittable
+            }
+        }
+        return pollCommittable();
+    }
+
+    private void addOffsets(Batch batch, ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            var partitionRecords = records.records(partition);
+            long lastOffset = partitionRecords.get(partitionRecords.size() - 1).offset();
+            batch.offsets.put(partition, new OffsetAndMetadata(lastOffset + 1));
+        }
+    }
+
+    public static class Batch {
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+        private final Semaphore inFlightPermits;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Batch(Map<TopicPartition, OffsetAndMetadata> offsets, Semaphore inFlightPermits) {
+            this.offsets = offsets;
+            this.inFlightPermits = inFlightPermits;
+        }
+
+        /**
+         * Marks the batch as processed, or failed if {@code failure} is not null. May be called from any thread.
+         */
+        public void complete(Throwable failure) {
+            boolean completed = failure == null ? done.complete(null) : done.completeExceptionally(failure);
+            if (completed) {
+                inFlightPermits.release();
+            }
+        }
+    }
+}
@@ -8,12 +8,16 @@ import com.custom.marketdata.entity.OrderEntity;
 import com.custom.marketdata.entity.ProductEntity;
 import com.custom.marketdata.entity.TradeEntity;
 import com.custom.marketdata.entity.User;
+import com.custom.marketdata.manager.OpenOrderManager;
 import com.custom.marketdata.repository.OrderRepository;
 import com.custom.marketdata.repository.ProductRepository;
 import com.custom.marketdata.repository.TradeRepository;
+import com.custom.matchingengine.Order;
+import com.custom.matchingengine.command.BatchCancelOrderCommand;
 import com.custom.matchingengine.command.CancelOrderCommand;
 import com.custom.matchingengine.command.MatchingEngineCommandProducer;
 import com.custom.matchingengine.command.PlaceOrderCommand;
+import com.custom.openapi.model.CursorPagedList;
 import com.custom.openapi.model.OrderDto;
 import com.custom.openapi.model.PagedList;
 import com.custom.openapi.model.PlaceOrderRequest;
@@ -47,6 +51,7 @@ public class OrderController {
     private final ProductRepository productRepository;
     private final TradeRepository tradeRepository;
     private final UnifiedAuthenticationService unifiedAuthenticationService;
+    private final OpenOrderManager openOrderManager;
 
     @PostMapping(value = "/orders")
     public OrderDto placeOrder(@RequestBody @Valid PlaceOrderRequest request,
@@ -88,44 +93,6 @@ public class OrderController {
     }
 
 
-    public OrderDto placeOrderBot(@RequestBody @Valid PlaceOrderRequest request,
-                                  User currentUser) {
-        if (currentUser == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
-        }
-        ProductEntity product = productRepository.findById(request.getProductId());
-        if (product == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "product not found: " + request.getProductId());
-        }
-
-        OrderType type = OrderType.valueOf(request.getType().toUpperCase());
-        OrderSide side = OrderSide.valueOf(request.getSide().toUpperCase());
-        BigDecimal size = new BigDecimal(request.getSize());
-        BigDecimal price = request.getPrice() != null ? new BigDecimal(request.getPrice()) : null;
-        BigDecimal funds = request.getFunds() != null ? new BigDecimal(request.getFunds()) : null;
-        TimeInForce timeInForce = request.getTimeInForce() != null
-                ? TimeInForce.valueOf(request.getTimeInForce().toUpperCase())
-                : null;
-
-        PlaceOrderCommand command = new PlaceOrderCommand();
-        command.setProductId(request.getProductId());
-        command.setOrderId(UUID.randomUUID().toString());
-        command.setUserId(currentUser.getId());
-        command.setOrderType(type);
-        command.setOrderSide(side);
-        command.setSize(size);
-        command.setPrice(price);
-        command.setFunds(funds);
-        command.setTime(new Date());
-        formatPlaceOrderCommand(command, product);
-        validatePlaceOrderCommand(command);
-        matchingEngineCommandProducer.send(command, null);
-
-        OrderDto orderDto = new OrderDto();
-        orderDto.setId(command.getOrderId());
-        return orderDto;
-    }
-
     @DeleteMapping("/orders/{orderId}")
     @SneakyThrows
     public void cancelOrder(@PathVariable String orderId, @RequestAttribute(required = false) User currentUser) {
@@ -133,17 +100,28 @@ public class OrderController {
 //            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
 //        }
 
-        OrderEntity order = orderRepository.findByOrderId(orderId);
-        if (order == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "order not found: " + orderId);
+        // resting orders are answered from memory, anything else (e.g. not open yet) from the database
+        Order openOrder = openOrderManager.getOrder(orderId);
+        String userId;
+        String productId;
+        if (openOrder != null) {
+            userId = openOrder.getUserId();
+            productId = openOrder.getProductId();
+        } else {
+            OrderEntity order = orderRepository.findByOrderId(orderId);
+            if (order == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "order not found: " + orderId);
+            }
+            userId = order.getUserId();
+            productId = order.getProductId();
         }
-        if (!order.getUserId().equals(currentUser.getId())) {
+        if (!userId.equals(currentUser.getId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN);
         }
 
         CancelOrderCommand command = new CancelOrderCommand();
-        command.setProductId(order.getProductId());
-        command.setOrderId(order.getId());
+        command.setProductId(productId);
+        command.setOrderId(orderId);
         matchingEngineCommandProducer.send(command, null);
     }
 
@@ -183,15 +161,40 @@ public class OrderController {
 
         OrderSide orderSide = side != null ? OrderSide.valueOf(side.toUpperCase()) : null;
 
-        PagedList<OrderEntity> orderPage = orderRepository.findAll(currentUser.getId(), productId, OrderStatus.OPEN,
-                orderSide, 1, 20000);
-
-        for (OrderEntity order : orderPage.getItems()) {
-            CancelOrderCommand command = new CancelOrderCommand();
-            command.setProductId(order.getProductId());
-            command.setOrderId(order.getId());
-            matchingEngineCommandProducer.send(command, null);
+        BatchCancelOrderCommand batch = new BatchCancelOrderCommand();
+        if (openOrderManager.isReady()) {
+            for (Order order : openOrderManager.getOpenOrders(currentUser.getId(), productId, orderSide)) {
+                batch = addCancel(batch, order.getProductId(), order.getId());
+            }
+        } else {
+            String cursor = null;
+            do {
+                CursorPagedList<OrderEntity> orderPage = orderRepository.findAll(currentUser.getId(), productId,
+                        OrderStatus.OPEN, orderSide, cursor, 1000, false);
+                for (OrderEntity order : orderPage.getItems()) {
+                    batch = addCancel(batch, order.getProductId(), order.getId());
+                }
+                cursor = orderPage.getNextCursor();
+            } while (cursor != null);
         }
+        if (!batch.getOrders().isEmpty()) {
+            matchingEngineCommandProducer.send(batch, null);
+        }
+    }
+
+    /**
+     * Adds a cancel to the batch, sending the batch and returning a new one once it is full.
+     */
+    private BatchCancelOrderCommand addCancel(BatchCancelOrderCommand batch, String productId, String orderId) {
+        CancelOrderCommand command = new CancelOrderCommand();
+        command.setProductId(productId);
+        command.setOrderId(orderId);
+        batch.getOrders().add(command);
+        if (batch.getOrders().size() < BatchCancelOrderCommand.MAX_ORDERS) {
+            return batch;
+        }
+        matchingEngineCommandProducer.send(batch, null);
+        return new BatchCancelOrderCommand();
     }
 
     @GetMapping("/orders")
@@ -199,6 +202,8 @@ public class OrderController {
                                           @RequestParam(required = false) String status,
                                           @RequestParam(defaultValue = "1") int page,
                                           @RequestParam(defaultValue = "50") int pageSize,
+                                          @RequestParam(required = false) String before,
+                                          @RequestParam(defaultValue = "true") boolean count,
                                           @RequestAttribute(required = false) User currentUser) {
         if (currentUser == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
@@ -206,11 +211,35 @@ public class OrderController {
 
         OrderStatus orderStatus = status != null ? OrderStatus.valueOf(status.toUpperCase()) : null;
 
-        PagedList<OrderEntity> orderPage = orderRepository.findAll(currentUser.getId(), productId, orderStatus, null,
-                page, pageSize);
-        return new PagedList<>(
+        if (orderStatus == OrderStatus.OPEN && before == null && page == 1 && openOrderManager.isReady()) {
+            // served from the index only when it fits one page, further pages need a cursor into the repository
+            List<Order> openOrders = openOrderManager.getOpenOrders(currentUser.getId(), productId, null);
+            if (openOrders.size() <= pageSize) {
+                return new CursorPagedList<>(
+                        openOrders.stream().map(this::orderDto).collect(Collectors.toList()),
+                        openOrders.size(), null);
+            }
+        }
+
+        // deep offset pages are still served for old clients, the first page and cursor pages use keyset paging
+        if (before == null && page > 1) {
+            PagedList<OrderEntity> orderPage = orderRepository.findAll(currentUser.getId(), productId, orderStatus,
+                    null, page, pageSize, count);
+            return new PagedList<>(
+                    orderPage.getItems().stream().map(this::orderDto).collect(Collectors.toList()),
+                    orderPage.getCount());
+        }
+
+        CursorPagedList<OrderEntity> orderPage;
+        try {
+            orderPage = orderRepository.findAll(currentUser.getId(), productId, orderStatus, null, before, pageSize,
+                    count);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return new CursorPagedList<>(
                 orderPage.getItems().stream().map(this::orderDto).collect(Collectors.toList()),
-                orderPage.getCount());
+                orderPage.getCount(), orderPage.getNextCursor());
     }
 
     private OrderDto orderDto(OrderEntity order) {
@@ -233,6 +262,27 @@ public class OrderController {
         return orderDto;
     }
 
+    private OrderDto orderDto(Order order) {
+        OrderDto orderDto = new OrderDto();
+        orderDto.setId(order.getId());
+        orderDto.setPrice(order.getPrice().toPlainString());
+        orderDto.setSize(order.getSize().toPlainString());
+        orderDto.setFilledSize(order.getSize().subtract(order.getRemainingSize()).toPlainString());
+        orderDto.setFunds(order.getFunds() != null ? order.getFunds().toPlainString() : "0");
+        orderDto.setExecutedValue(order.getFunds() != null && order.getRemainingFunds() != null
+                ? order.getFunds().subtract(order.getRemainingFunds()).toPlainString() : "0");
+        orderDto.setSide(order.getSide().name().toLowerCase());
+        orderDto.setProductId(order.getProductId());
+        orderDto.setType(order.getType().name().toLowerCase());
+        if (order.getTime() != null) {
+            orderDto.setCreatedAt(order.getTime().toInstant().toString());
+        }
+        if (order.getStatus() != null) {
+            orderDto.setStatus(order.getStatus().name().toLowerCase());
+        }
+        return orderDto;
+    }
+
     private void formatPlaceOrderCommand(PlaceOrderCommand command, ProductEntity product) {
         BigDecimal size = command.getSize();
         BigDecimal price = command.getPrice();
@@ -1,16 +1,15 @@
 package com.custom.openapi.controller;
 
-import com.alibaba.fastjson.JSON;
 import com.custom.marketdata.entity.Candle;
 import com.custom.marketdata.entity.ProductEntity;
 import com.custom.marketdata.entity.Ticker;
 import com.custom.marketdata.entity.TradeEntity;
+import com.custom.marketdata.manager.RecentTradeCache;
 import com.custom.marketdata.manager.TickerManager;
-import com.custom.marketdata.orderbook.L2OrderBook;
+import com.custom.marketdata.orderbook.DepthCache;
 import com.custom.marketdata.orderbook.OrderBookSnapshotManager;
 import com.custom.marketdata.repository.CandleRepository;
 import com.custom.marketdata.repository.ProductRepository;
-import com.custom.marketdata.repository.TradeRepository;
 import com.custom.openapi.model.PagedList;
 import com.custom.openapi.model.ProductDto;
 import com.custom.openapi.model.TradeDto;
@@ -18,18 +17,27 @@ import com.custom.openapi.model.peatio.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController()
@@ -37,11 +45,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Slf4j
 public class ProductController {
+    private static final byte[] EMPTY_PEATIO_ORDER_BOOK = "{\"asks\":[],\"bids\":[]}".getBytes(StandardCharsets.UTF_8);
+
     private final OrderBookSnapshotManager orderBookSnapshotManager;
     private final ProductRepository productRepository;
-    private final TradeRepository tradeRepository;
     private final CandleRepository candleRepository;
     private final TickerManager tickerManager;
+    private final DepthCache depthCache;
+    private final RecentTradeCache recentTradeCache;
 
     @GetMapping("/api/products")
     public List<ProductDto> getProducts() {
@@ -51,8 +62,8 @@ public class ProductController {
 
     @GetMapping("/api/products/{productId}/trades")
     public List<TradeDto> getProductTrades(@PathVariable String productId) {
-        List<TradeEntity> trades = tradeRepository.findByProductId(productId, 50);
-        return trades.stream().map(this::tradeDto).collect(Collectors.toList());
+        return recentTradeCache.render(productId, "trades", 50,
+                trades -> trades.stream().map(this::tradeDto).collect(Collectors.toList()));
     }
 
     @GetMapping("/api/products/{productId}/candles")
@@ -79,12 +90,15 @@ public class ProductController {
     }
 
     @GetMapping("/api/products/{productId}/book")
-    public Object getProductBook(@PathVariable String productId, @RequestParam(defaultValue = "2") int level) {
+    public ResponseEntity<?> getProductBook(@PathVariable String productId, @RequestParam(defaultValue = "2") int level,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                            String ifNoneMatch) {
         return switch (level) {
-            case 1 -> orderBookSnapshotManager.getL1OrderBook(productId);
-            case 2 -> orderBookSnapshotManager.getL2BatchOrderBook(productId);
-            case 3 -> orderBookSnapshotManager.getL3OrderBook(productId);
-            default -> null;
+            case 1 -> depthResponse(depthCache.getDepth(productId), ifNoneMatch, null, depth -> depth.l2Body(1));
+            case 2 -> depthResponse(depthCache.getDepth(productId), ifNoneMatch, null,
+                    depth -> depth.l2Body(Integer.MAX_VALUE));
+            case 3 -> ResponseEntity.ok(orderBookSnapshotManager.getL3OrderBook(productId));
+            default -> ResponseEntity.ok().build();
         };
     }
 
@@ -159,31 +173,35 @@ public class ProductController {
     }
 
     @GetMapping("/public/markets/{market}/order-book")
-    public Map<String, List<List<BigDecimal>>> getPeatioOrderBook(@PathVariable String market,
-                                                                 @RequestParam(defaultValue = "20") int asks_limit,
-                                                                 @RequestParam(defaultValue = "20") int bids_limit) {
+    public ResponseEntity<byte[]> getPeatioOrderBook(@PathVariable String market,
+                                                     @RequestParam(defaultValue = "20") int asks_limit,
+                                                     @RequestParam(defaultValue = "20") int bids_limit,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                     String ifNoneMatch) {
         String normalizedMarket = normalizeMarketId(market);
-        Object orderBook = orderBookSnapshotManager.getL2BatchOrderBook(normalizedMarket);
-        // Parse and format the order book according to Peatio specification
-        return parseOrderBookForPeatio(orderBook, asks_limit, bids_limit);
+        return depthResponse(depthCache.getDepth(normalizedMarket), ifNoneMatch, EMPTY_PEATIO_ORDER_BOOK,
+                depth -> depth.peatioBody(asks_limit, bids_limit));
     }
 
     @GetMapping("/public/markets/{market}/depth")
-    public Map<String, List<List<BigDecimal>>> getPeatioDepth(@PathVariable String market,
-                                                              @RequestParam(defaultValue = "20") int asks_limit,
-                                                              @RequestParam(defaultValue = "20") int bids_limit) {
+    public ResponseEntity<byte[]> getPeatioDepth(@PathVariable String market,
+                                                 @RequestParam(defaultValue = "20") int asks_limit,
+                                                 @RequestParam(defaultValue = "20") int bids_limit,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                 String ifNoneMatch) {
         // Same as order-book endpoint, just different URL for compatibility
-        String normalizedMarket = normalizeMarketId(market);
-        Object orderBook = orderBookSnapshotManager.getL2BatchOrderBook(normalizedMarket);
-        return parseOrderBookForPeatio(orderBook, asks_limit, bids_limit);
+        return getPeatioOrderBook(market, asks_limit, bids_limit, ifNoneMatch);
     }
 
     @GetMapping("/public/markets/{market}/trades")
     public List<PeatioTradeDto> getPeatioTrades(@PathVariable String market,
                                                @RequestParam(defaultValue = "50") int limit,
                                                @RequestParam(required = false) Long timestamp) {
-        List<TradeEntity> trades = tradeRepository.findByProductId(market, limit);
-        return trades.stream().map(this::peatioTradeDto).collect(Collectors.toList());
+        if (limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid limit: " + limit);
+        }
+        return recentTradeCache.render(market, "peatio-trades", limit,
+                trades -> trades.stream().map(this::peatioTradeDto).collect(Collectors.toList()));
     }
 
     private MarketDto peatioMarketDto(ProductEntity product) {
@@ -237,50 +255,23 @@ public class ProductController {
         return dto;
     }
 
-    private Map<String, List<List<BigDecimal>>> parseOrderBookForPeatio(Object orderBook, int asksLimit, int bidsLimit) {
-        Map<String, List<List<BigDecimal>>> result = new HashMap<>();
-        result.put("asks", new ArrayList<>());
-        result.put("bids", new ArrayList<>());
-
-        if (orderBook == null) {
-            return result;
+    /**
+     * Serves a pre-rendered depth body, or 304 if the client already has the book at this sequence.
+     */
+    private ResponseEntity<byte[]> depthResponse(DepthCache.DepthView depth, String ifNoneMatch, byte[] emptyBody,
+                                                 Function<DepthCache.DepthView, byte[]> body) {
+        if (depth == null) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emptyBody);
         }
-
-        try {
-            L2OrderBook l2OrderBook;
-            if (orderBook instanceof L2OrderBook) {
-                l2OrderBook = (L2OrderBook) orderBook;
-            } else {
-                // If it's a JSON string, parse it
-                l2OrderBook = JSON.parseObject(orderBook.toString(), L2OrderBook.class);
-            }
-
-            if (l2OrderBook != null) {
-                // Convert asks (limit to asksLimit)
-                if (l2OrderBook.getAsks() != null) {
-                    result.get("asks").addAll(
-                        l2OrderBook.getAsks().stream()
-                            .limit(asksLimit)
-                            .map(this::convertOrderBookEntry)
-                            .collect(Collectors.toList())
-                    );
-                }
-
-                // Convert bids (limit to bidsLimit)
-                if (l2OrderBook.getBids() != null) {
-                    result.get("bids").addAll(
-                        l2OrderBook.getBids().stream()
-                            .limit(bidsLimit)
-                            .map(this::convertOrderBookEntry)
-                            .collect(Collectors.toList())
-                    );
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error parsing order book: {}", e.getMessage(), e);
+        boolean notModified = depth.getETag().equals(ifNoneMatch);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(depth.getETag())
+                .header("X-Sequence", String.valueOf(depth.getSequence()))
+                .cacheControl(CacheControl.noCache());
+        if (notModified) {
+            return response.build();
         }
-
-        return result;
+        return response.contentType(MediaType.APPLICATION_JSON).body(body.apply(depth));
     }
 
     private String normalizeMarketId(String market) {
@@ -315,16 +306,6 @@ public class ProductController {
         return market.toUpperCase();
     }
 
-    private List<BigDecimal> convertOrderBookEntry(L2OrderBook.Line line) {
-        List<BigDecimal> result = new ArrayList<>();
-        if (line != null && line.size() >= 2) {
-            // [price, size] format
-            result.add(new BigDecimal(line.getPrice()));
-            result.add(new BigDecimal(line.getSize()));
-        }
-        return result;
-    }
-
     private ProductDto productDto(ProductEntity product) {
         ProductDto productDto = new ProductDto();
         BeanUtils.copyProperties(product, productDto);
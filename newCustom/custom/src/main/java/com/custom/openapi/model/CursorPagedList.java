@@ -0,0 +1,21 @@
+package com.custom.openapi.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated listing. {@code nextCursor} is passed back as {@code before} to fetch the next
+ * page and is null on the last page. {@code count} is -1 when the caller opted out of counting.
+ */
+@Getter
+@Setter
+public class CursorPagedList<T> extends PagedList<T> {
+    private String nextCursor;
+
+    public CursorPagedList(List<T> items, long count, String nextCursor) {
+        super(items, count);
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,153 @@
+package com.custom.stripexecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the tasks of one stripe key one after another, in submission order. Keys are hashed onto a fixed number of
+ * stripes; each stripe is a lock-free queue drained by its own worker thread, so submitting never takes a lock
+ * shared with other stripes.
+ * <p>
+ * Workers come from the given {@link ThreadFactory}, which decides whether they are platform or virtual threads.
+ */
+@Slf4j
+public class StripedExecutor implements Executor {
+    private final String name;
+    private final Stripe[] stripes;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public StripedExecutor(String name, int stripeCount) {
+        this(name, stripeCount, daemonThreadFactory(name));
+    }
+
+    public StripedExecutor(String name, int stripeCount, ThreadFactory threadFactory) {
+        this.name = name;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i);
+        }
+        for (Stripe stripe : stripes) {
+            stripe.worker = threadFactory.newThread(stripe::run);
+            stripe.worker.start();
+        }
+    }
+
+    /**
+     * Runs the task after every task submitted earlier with a key on the same stripe.
+     */
+    public void execute(Object stripeKey, Runnable task) {
+        int hash = stripeKey.hashCode();
+        hash ^= (hash >>> 16);
+        stripes[Math.floorMod(hash, stripes.length)].offer(task);
+    }
+
+    /**
+     * Runs a task that has no ordering constraint, on the stripes in turn.
+     */
+    @Override
+    public void execute(Runnable task) {
+        stripes[Math.floorMod(nextStripe.getAndIncrement(), stripes.length)].offer(task);
+    }
+
+    /**
+     * Stops accepting tasks. Workers finish the tasks already queued and exit.
+     */
+    public void shutdown() {
+        running = false;
+        for (Stripe stripe : stripes) {
+            LockSupport.unpark(stripe.worker);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class Stripe {
+        private final Queue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer latencyTimer;
+        private Thread worker;
+        /**
+         * Set by the worker before it parks, so that producers know they have to wake it up
+         */
+        private volatile boolean waiting;
+
+        private Stripe(int index) {
+            String stripeTag = String.valueOf(index);
+            Gauge.builder("gbe.executor.stripe.queue.depth", depth, AtomicInteger::get)
+                    .tag("executor", name)
+                    .tag("stripe", stripeTag)
+                    .register(Metrics.globalRegistry);
+            this.latencyTimer = Timer.builder("gbe.executor.stripe.task.latency")
+                    .description("time a task waited in its stripe before it started")
+                    .tag("executor", name)
+                    .tag("stripe", stripeTag)
+                    .register(Metrics.globalRegistry);
+        }
+
+        private void offer(Runnable task) {
+            if (!running) {
+                throw new RejectedExecutionException(name + " is shut down");
+            }
+            queue.offer(new QueuedTask(task, System.nanoTime()));
+            depth.incrementAndGet();
+            if (waiting) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        private void run() {
+            while (true) {
+                QueuedTask task = queue.poll();
+                if (task == null) {
+                    if (!running) {
+                        return;
+                    }
+                    waiting = true;
+                    // re-check after publishing the flag, a producer may have enqueued in between
+                    if (queue.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                    continue;
+                }
+
+                depth.decrementAndGet();
+                latencyTimer.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.task.run();
+                } catch (Throwable e) {
+                    logger.error("{} task error: {}", name, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static class QueuedTask {
+        private final Runnable task;
+        private final long enqueuedAt;
+
+        private QueuedTask(Runnable task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
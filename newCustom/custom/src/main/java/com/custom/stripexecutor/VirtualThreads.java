@@ -0,0 +1,30 @@
+package com.custom.stripexecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads without compiling against a JDK that has them. The application targets Java 17, so
+ * {@code Thread.ofVirtual()} is looked up reflectively and is only available when running on JDK 21 or later.
+ */
+@Slf4j
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns a factory of virtual threads named {@code name-<n>}, or null if the running JDK has no virtual threads.
+     */
+    public static ThreadFactory newThreadFactory(String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("virtual threads not available: {}", e.toString());
+            return null;
+        }
+    }
+}
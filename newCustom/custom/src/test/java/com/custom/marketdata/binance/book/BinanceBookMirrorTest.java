@@ -0,0 +1,131 @@
+package com.custom.marketdata.binance.book;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinanceBookMirrorTest {
+    private static final int DEPTH = 10;
+
+    @Test
+    void buffersDiffsUntilTheSnapshotAndAsksForItOnce() {
+        BinanceBookMirror mirror = new BinanceBookMirror("btcusdt");
+
+        assertTrue(mirror.onUpdate(update(101, 103, new long[][]{{100, 1}}, new long[][]{})));
+        assertFalse(mirror.onUpdate(update(104, 105, new long[][]{{99, 2}}, new long[][]{})));
+        assertFalse(mirror.isLive());
+        assertFalse(mirror.drainChanges(DEPTH, new BookChanges()));
+    }
+
+    @Test
+    void appliesTheBufferedDiffsTheSnapshotDoesNotCover() {
+        BinanceBookMirror mirror = new BinanceBookMirror("btcusdt");
+        // covered by the snapshot, must not be applied on top of it
+        mirror.onUpdate(update(95, 100, new long[][]{{100, 7}}, new long[][]{}));
+        mirror.onUpdate(update(101, 103, new long[][]{{99, 2}}, new long[][]{{101, 0}}));
+
+        assertTrue(mirror.onSnapshot(snapshot(102, new long[][]{{100, 3}}, new long[][]{{101, 2}, {102, 4}})));
+        assertTrue(mirror.isLive());
+
+        BookChanges changes = new BookChanges();
+        assertTrue(mirror.drainChanges(DEPTH, changes));
+        assertTrue(changes.isFull());
+        assertLevels(changes.getBids(), new long[]{100, 99}, new long[]{3, 2});
+        assertLevels(changes.getAsks(), new long[]{102}, new long[]{4});
+    }
+
+    @Test
+    void rejectsASnapshotOlderThanTheBufferedDiffs() {
+        BinanceBookMirror mirror = new BinanceBookMirror("btcusdt");
+        mirror.onUpdate(update(110, 112, new long[][]{{100, 1}}, new long[][]{}));
+
+        assertFalse(mirror.onSnapshot(snapshot(105, new long[][]{{100, 3}}, new long[][]{})));
+        assertFalse(mirror.isLive());
+
+        assertTrue(mirror.onSnapshot(snapshot(111, new long[][]{{100, 3}}, new long[][]{})));
+        BookChanges changes = new BookChanges();
+        mirror.drainChanges(DEPTH, changes);
+        assertLevels(changes.getBids(), new long[]{100}, new long[]{1});
+    }
+
+    @Test
+    void drainsOnlyTheChangesAfterTheFirstDrain() {
+        BinanceBookMirror mirror = synced();
+        BookChanges changes = new BookChanges();
+        mirror.drainChanges(DEPTH, changes);
+
+        // stale diff, already covered
+        assertFalse(mirror.onUpdate(update(90, 100, new long[][]{{100, 9}}, new long[][]{})));
+        assertFalse(mirror.onUpdate(update(102, 102, new long[][]{{100, 5}}, new long[][]{{102, 0}})));
+
+        assertTrue(mirror.drainChanges(DEPTH, changes));
+        assertFalse(changes.isFull());
+        assertLevels(changes.getBids(), new long[]{100}, new long[]{5});
+        assertLevels(changes.getAsks(), new long[]{102}, new long[]{0});
+
+        assertFalse(mirror.drainChanges(DEPTH, changes));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void discardsTheBookOnAGapAndResyncs() {
+        BinanceBookMirror mirror = synced();
+        mirror.drainChanges(DEPTH, new BookChanges());
+
+        assertTrue(mirror.onUpdate(update(105, 106, new long[][]{{98, 1}}, new long[][]{})));
+        assertFalse(mirror.isLive());
+        assertFalse(mirror.drainChanges(DEPTH, new BookChanges()));
+
+        // the diff that revealed the gap is kept for the next snapshot
+        assertTrue(mirror.onSnapshot(snapshot(104, new long[][]{{100, 1}}, new long[][]{{103, 1}})));
+        BookChanges changes = new BookChanges();
+        assertTrue(mirror.drainChanges(DEPTH, changes));
+        assertTrue(changes.isFull());
+        assertLevels(changes.getBids(), new long[]{100, 98}, new long[]{1, 1});
+        assertLevels(changes.getAsks(), new long[]{103}, new long[]{1});
+    }
+
+    @Test
+    void asksForASnapshotAgainAfterAReset() {
+        BinanceBookMirror mirror = new BinanceBookMirror("btcusdt");
+        assertTrue(mirror.onUpdate(update(101, 103, new long[][]{}, new long[][]{})));
+        mirror.reset();
+
+        assertTrue(mirror.onUpdate(update(104, 105, new long[][]{}, new long[][]{})));
+    }
+
+    private static BinanceBookMirror synced() {
+        BinanceBookMirror mirror = new BinanceBookMirror("btcusdt");
+        mirror.onUpdate(update(101, 101, new long[][]{}, new long[][]{}));
+        mirror.onSnapshot(snapshot(100, new long[][]{{100, 3}, {99, 2}}, new long[][]{{101, 1}, {102, 4}}));
+        return mirror;
+    }
+
+    private static DepthUpdate update(long firstUpdateId, long finalUpdateId, long[][] bids, long[][] asks) {
+        DepthUpdate update = new DepthUpdate();
+        update.setSymbol("btcusdt");
+        update.setFirstUpdateId(firstUpdateId);
+        update.setFinalUpdateId(finalUpdateId);
+        for (long[] level : bids) {
+            update.getBids().add(level[0], level[1]);
+        }
+        for (long[] level : asks) {
+            update.getAsks().add(level[0], level[1]);
+        }
+        return update;
+    }
+
+    private static DepthUpdate snapshot(long lastUpdateId, long[][] bids, long[][] asks) {
+        return update(lastUpdateId, lastUpdateId, bids, asks);
+    }
+
+    private static void assertLevels(LevelList levels, long[] prices, long[] sizes) {
+        assertEquals(prices.length, levels.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(prices[i], levels.priceAt(i), "price at " + i);
+            assertEquals(sizes[i], levels.sizeAt(i), "size at " + i);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.custom.marketdata.binance.book;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceLadderTest {
+
+    @Test
+    void keepsBidsBestPriceFirst() {
+        PriceLadder bids = new PriceLadder(true, 2);
+        bids.update(100, 1);
+        bids.update(102, 2);
+        bids.update(101, 3);
+        bids.update(99, 4);
+
+        assertLevels(bids, new long[]{102, 101, 100, 99}, new long[]{2, 3, 1, 4});
+    }
+
+    @Test
+    void keepsAsksBestPriceFirst() {
+        PriceLadder asks = new PriceLadder(false);
+        asks.update(102, 2);
+        asks.update(100, 1);
+        asks.update(101, 3);
+
+        assertLevels(asks, new long[]{100, 101, 102}, new long[]{1, 3, 2});
+    }
+
+    @Test
+    void updatesAndRemovesLevels() {
+        PriceLadder asks = new PriceLadder(false);
+        asks.update(100, 1);
+        asks.update(101, 2);
+        asks.update(102, 3);
+
+        asks.update(101, 5);
+        asks.update(100, 0);
+        // removing a level that is not there changes nothing
+        asks.update(105, 0);
+
+        assertLevels(asks, new long[]{101, 102}, new long[]{5, 3});
+        assertTrue(asks.indexOf(100) < 0);
+    }
+
+    @Test
+    void diffTopReportsChangedAddedAndRemovedLevels() {
+        PriceLadder bids = new PriceLadder(true);
+        bids.update(100, 1);
+        bids.update(99, 2);
+        bids.update(98, 3);
+        LevelList published = new LevelList();
+        bids.copyTop(3, published);
+
+        bids.update(99, 5);
+        bids.update(98, 0);
+        bids.update(101, 4);
+
+        LevelList changes = new LevelList();
+        bids.diffTop(published, 3, changes);
+
+        assertLevels(changes, new long[]{101, 99, 98}, new long[]{4, 5, 0});
+    }
+
+    @Test
+    void diffTopReportsLevelsMovingInAndOutOfTheWindow() {
+        PriceLadder asks = new PriceLadder(false);
+        asks.update(100, 1);
+        asks.update(101, 2);
+        asks.update(102, 3);
+        LevelList published = new LevelList();
+        asks.copyTop(2, published);
+
+        // pushes 101 out of a two level window, 102 is still behind it
+        asks.update(99, 4);
+        LevelList changes = new LevelList();
+        asks.diffTop(published, 2, changes);
+        assertLevels(changes, new long[]{99, 101}, new long[]{4, 0});
+
+        asks.copyTop(2, published);
+        // 101 comes back into the window once 99 is gone
+        asks.update(99, 0);
+        changes.clear();
+        asks.diffTop(published, 2, changes);
+        assertLevels(changes, new long[]{99, 101}, new long[]{0, 2});
+    }
+
+    @Test
+    void diffTopOfAnUnchangedWindowIsEmpty() {
+        PriceLadder bids = new PriceLadder(true);
+        bids.update(100, 1);
+        bids.update(99, 2);
+        LevelList published = new LevelList();
+        bids.copyTop(5, published);
+
+        // a change behind the window is not reported
+        bids.update(50, 7);
+        LevelList changes = new LevelList();
+        bids.diffTop(published, 2, changes);
+
+        assertTrue(changes.isEmpty());
+    }
+
+    private static void assertLevels(PriceLadder ladder, long[] prices, long[] sizes) {
+        assertEquals(prices.length, ladder.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(prices[i], ladder.priceAt(i), "price at " + i);
+            assertEquals(sizes[i], ladder.sizeAt(i), "size at " + i);
+        }
+    }
+
+    private static void assertLevels(LevelList levels, long[] prices, long[] sizes) {
+        assertEquals(prices.length, levels.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(prices[i], levels.priceAt(i), "price at " + i);
+            assertEquals(sizes[i], levels.sizeAt(i), "size at " + i);
+        }
+    }
+}
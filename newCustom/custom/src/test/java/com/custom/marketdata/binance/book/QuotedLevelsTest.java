@@ -0,0 +1,85 @@
+package com.custom.marketdata.binance.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuotedLevelsTest {
+    // one decimal
+    private static final LongUnaryOperator FORMAT_PRICE = price -> price - price % ScaledDecimal.parse("0.1");
+
+    @Test
+    void addsUpTheLevelsOfAFullWindowThatRoundToTheSamePrice() {
+        QuotedLevels levels = new QuotedLevels();
+
+        BookChanges quoted = levels.apply(full(new String[][]{{"100.19", "1"}, {"100.1", "2"}, {"100.05", "4"}},
+                new String[][]{{"100.21", "1"}, {"100.25", "3"}, {"100.3", "5"}}), FORMAT_PRICE);
+
+        assertTrue(quoted.isFull());
+        assertLevels(quoted.getBids(), new String[]{"100.1", "100"}, new String[]{"3", "4"});
+        assertLevels(quoted.getAsks(), new String[]{"100.2", "100.3"}, new String[]{"4", "5"});
+    }
+
+    @Test
+    void reportsTheNewTotalAtThePriceOfAChangedLevel() {
+        QuotedLevels levels = new QuotedLevels();
+        levels.apply(full(new String[][]{{"100.19", "1"}, {"100.1", "2"}, {"100.05", "4"}}, new String[][]{}),
+                FORMAT_PRICE);
+
+        BookChanges changes = new BookChanges();
+        changes.getBids().add(ScaledDecimal.parse("100.19"), ScaledDecimal.parse("1.5"));
+        changes.getBids().add(ScaledDecimal.parse("100.12"), ScaledDecimal.parse("1"));
+        changes.getBids().add(ScaledDecimal.parse("100.05"), 0);
+        BookChanges quoted = levels.apply(changes, FORMAT_PRICE);
+
+        assertFalse(quoted.isFull());
+        assertLevels(quoted.getBids(), new String[]{"100.1", "100"}, new String[]{"4.5", "0"});
+        assertTrue(quoted.getAsks().isEmpty());
+    }
+
+    @Test
+    void keepsAPriceWhileAnotherLevelRoundsToIt() {
+        QuotedLevels levels = new QuotedLevels();
+        levels.apply(full(new String[][]{}, new String[][]{{"100.21", "1"}, {"100.25", "3"}}), FORMAT_PRICE);
+
+        BookChanges changes = new BookChanges();
+        changes.getAsks().add(ScaledDecimal.parse("100.21"), 0);
+        BookChanges quoted = levels.apply(changes, FORMAT_PRICE);
+
+        assertLevels(quoted.getAsks(), new String[]{"100.2"}, new String[]{"3"});
+    }
+
+    @Test
+    void replacesTheWindowOnAFullResync() {
+        QuotedLevels levels = new QuotedLevels();
+        levels.apply(full(new String[][]{{"100.19", "1"}}, new String[][]{}), FORMAT_PRICE);
+
+        BookChanges quoted = levels.apply(full(new String[][]{{"99.91", "2"}}, new String[][]{}), FORMAT_PRICE);
+
+        assertLevels(quoted.getBids(), new String[]{"99.9"}, new String[]{"2"});
+    }
+
+    private static BookChanges full(String[][] bids, String[][] asks) {
+        BookChanges changes = new BookChanges();
+        changes.setFull(true);
+        for (String[] level : bids) {
+            changes.getBids().add(ScaledDecimal.parse(level[0]), ScaledDecimal.parse(level[1]));
+        }
+        for (String[] level : asks) {
+            changes.getAsks().add(ScaledDecimal.parse(level[0]), ScaledDecimal.parse(level[1]));
+        }
+        return changes;
+    }
+
+    private static void assertLevels(LevelList levels, String[] prices, String[] sizes) {
+        assertEquals(prices.length, levels.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(ScaledDecimal.parse(prices[i]), levels.priceAt(i), "price at " + i);
+            assertEquals(ScaledDecimal.parse(sizes[i]), levels.sizeAt(i), "size at " + i);
+        }
+    }
+}
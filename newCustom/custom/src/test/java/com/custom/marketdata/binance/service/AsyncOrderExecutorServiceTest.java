@@ -0,0 +1,90 @@
+package com.custom.marketdata.binance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncOrderExecutorServiceTest {
+    private static final String PRODUCT_ID = "BTC-USDT";
+    private final AsyncOrderExecutorService executor = new AsyncOrderExecutorService();
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void runsTheOperationsOfALaneInSubmissionOrder() throws Exception {
+        blockLane();
+        List<String> expected = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String name = "op-" + i;
+            expected.add(name);
+            futures.add(executor.submitOrderOperation(PRODUCT_ID, name, p -> ran.add(name)));
+        }
+        release.countDown();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get(10, TimeUnit.SECONDS);
+        assertEquals(expected, ran);
+    }
+
+    @Test
+    void conflatesOnlyWithTheOperationAtTheTailOfTheLane() throws Exception {
+        blockLane();
+        CompletableFuture<Void> firstSync = executor.submitLatestOperation(PRODUCT_ID, "SYNC", p -> ran.add("sync-1"));
+        CompletableFuture<Void> cleanup = executor.submitOrderOperation(PRODUCT_ID, "CLEANUP", p -> ran.add("cleanup"));
+        // not folded into the first sync, which is not at the tail and would then run before the cleanup
+        CompletableFuture<Void> secondSync = executor.submitLatestOperation(PRODUCT_ID, "SYNC", p -> ran.add("sync-2"));
+        // folded into the second sync
+        CompletableFuture<Void> thirdSync = executor.submitLatestOperation(PRODUCT_ID, "SYNC", p -> ran.add("sync-3"));
+        release.countDown();
+
+        CompletableFuture.allOf(firstSync, cleanup, secondSync, thirdSync).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("sync-1", "cleanup", "sync-3"), ran);
+    }
+
+    @Test
+    void anErrorFailsItsOperationAndTheLaneGoesOn() throws Exception {
+        CompletableFuture<Void> failed = executor.submitOrderOperation(PRODUCT_ID, "FAIL", p -> {
+            throw new AssertionError("boom");
+        });
+        CompletableFuture<Void> next = executor.submitOrderOperation(PRODUCT_ID, "NEXT", p -> ran.add("next"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, e.getCause());
+        next.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("next"), ran);
+    }
+
+    /**
+     * Holds the lane on its first operation until {@link #release} opens, so that the next submissions queue up.
+     */
+    private void blockLane() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submitOrderOperation(PRODUCT_ID, "BLOCK", p -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,57 @@
+package com.custom.marketdata.binance.service;
+
+import com.custom.marketdata.binance.book.BookChanges;
+import com.custom.marketdata.binance.book.LevelList;
+import com.custom.marketdata.binance.book.ScaledDecimal;
+import com.custom.marketdata.binance.config.BinanceOrderbookConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinanceBookMirrorServiceTest {
+    private final BinanceBookMirrorService service = new BinanceBookMirrorService(new BinanceOrderbookConfig());
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    /**
+     * The fixture buffers a diff before the first snapshot, repeats an old diff, and then skips an update id, which
+     * has to drop the book until the second snapshot. The second symbol never gets a snapshot.
+     */
+    @Test
+    void replaysSnapshotsAndDiffsFromAFile() throws Exception {
+        Set<String> changedSymbols = ConcurrentHashMap.newKeySet();
+        service.addChangeListener(changedSymbols::add);
+
+        Thread replay = service.replay(Path.of(getClass().getResource("/binance/depth-replay.jsonl").toURI()));
+        replay.join(10000);
+        assertFalse(replay.isAlive());
+        assertTrue(service.isReplaying());
+
+        BookChanges changes = new BookChanges();
+        assertTrue(service.drainChanges("btcusdt", changes));
+        assertTrue(changes.isFull());
+        assertLevels(changes.getBids(), new String[]{"100", "99"}, new String[]{"5", "2"});
+        assertLevels(changes.getAsks(), new String[]{"101.5", "102"}, new String[]{"4", "1.5"});
+
+        assertFalse(service.drainChanges("ethusdt", changes));
+        assertEquals(Set.of("btcusdt"), changedSymbols);
+    }
+
+    private static void assertLevels(LevelList levels, String[] prices, String[] sizes) {
+        assertEquals(prices.length, levels.size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(ScaledDecimal.parse(prices[i]), levels.priceAt(i), "price at " + i);
+            assertEquals(ScaledDecimal.parse(sizes[i]), levels.sizeAt(i), "size at " + i);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.custom.marketdata.feedbus;
+
+import com.alibaba.fastjson.JSON;
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderStatus;
+import com.custom.enums.OrderType;
+import com.custom.matchingengine.Account;
+import com.custom.matchingengine.Order;
+import com.custom.matchingengine.Trade;
+import com.custom.matchingengine.message.AccountMessage;
+import com.custom.matchingengine.message.CommandEndMessage;
+import com.custom.matchingengine.message.Message;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.message.TradeMessage;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeedBatchCodecTest {
+
+    @Test
+    void roundTripsOrderTradeAndAccountMessages() {
+        List<Message> messages = List.of(orderMessage(), tradeMessage(), accountMessage());
+
+        List<Message> decoded = FeedBatchCodec.decode(FeedBatchCodec.encode(messages));
+
+        assertEquals(messages.size(), decoded.size());
+        assertInstanceOf(OrderMessage.class, decoded.get(0));
+        assertInstanceOf(TradeMessage.class, decoded.get(1));
+        assertInstanceOf(AccountMessage.class, decoded.get(2));
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(JSON.toJSONString(messages.get(i)), JSON.toJSONString(decoded.get(i)), "message " + i);
+        }
+    }
+
+    @Test
+    void roundTripsMissingFields() {
+        OrderMessage message = new OrderMessage();
+        message.setSequence(1);
+        Order order = new Order();
+        order.setId("order-1");
+        message.setOrder(order);
+
+        List<Message> decoded = FeedBatchCodec.decode(FeedBatchCodec.encode(List.of(message)));
+
+        assertEquals(JSON.toJSONString(message), JSON.toJSONString(decoded.get(0)));
+    }
+
+    @Test
+    void roundTripsAnEmptyBatch() {
+        assertEquals(0, FeedBatchCodec.decode(FeedBatchCodec.encode(List.of())).size());
+    }
+
+    @Test
+    void rejectsMessagesThatAreNotPublished() {
+        CommandEndMessage message = new CommandEndMessage();
+
+        assertThrows(IllegalArgumentException.class, () -> FeedBatchCodec.encode(List.of(message)));
+    }
+
+    private static OrderMessage orderMessage() {
+        Order order = new Order();
+        order.setId("order-1");
+        order.setSequence(12);
+        order.setUserId("user-1");
+        order.setProductId("BTC-USDT");
+        order.setClientOid("client-1");
+        order.setType(OrderType.LIMIT);
+        order.setSide(OrderSide.BUY);
+        order.setStatus(OrderStatus.OPEN);
+        order.setPrice(new BigDecimal("30000.50"));
+        order.setSize(new BigDecimal("0.2"));
+        order.setFunds(new BigDecimal("6000.100"));
+        order.setRemainingSize(new BigDecimal("0.15"));
+        // does not fit a long unscaled
+        order.setRemainingFunds(new BigDecimal("98765432109876543210.123456789"));
+        order.setTime(new Date(1700000000000L));
+        order.setPostOnly(true);
+
+        OrderMessage message = new OrderMessage();
+        message.setSequence(100);
+        message.setOrderBookSequence(55);
+        message.setOrder(order);
+        return message;
+    }
+
+    private static TradeMessage tradeMessage() {
+        Trade trade = new Trade();
+        trade.setProductId("BTC-USDT");
+        trade.setSequence(7);
+        trade.setSize(new BigDecimal("0.05"));
+        trade.setFunds(new BigDecimal("1500.025"));
+        trade.setPrice(new BigDecimal("30000.50"));
+        trade.setTime(new Date(1700000000001L));
+        trade.setSide(OrderSide.SELL);
+        trade.setTakerOrderId("order-2");
+        trade.setMakerOrderId("order-1");
+
+        TradeMessage message = new TradeMessage();
+        message.setSequence(101);
+        message.setTrade(trade);
+        return message;
+    }
+
+    private static AccountMessage accountMessage() {
+        Account account = new Account();
+        account.setId("account-1");
+        account.setUserId("user-1");
+        account.setCurrency("USDT");
+        account.setAvailable(new BigDecimal("1000"));
+        account.setHold(BigDecimal.ZERO);
+
+        AccountMessage message = new AccountMessage();
+        message.setSequence(102);
+        message.setAccount(account);
+        return message;
+    }
+}
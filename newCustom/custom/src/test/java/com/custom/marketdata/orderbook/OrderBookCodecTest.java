@@ -0,0 +1,111 @@
+package com.custom.marketdata.orderbook;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderBookCodecTest {
+
+    @Test
+    void roundTripsL2OrderBook() {
+        L2OrderBook orderBook = new L2OrderBook();
+        orderBook.setProductId("BTC-USDT");
+        orderBook.setSequence(42);
+        orderBook.setTime(1700000000000L);
+        orderBook.setAsks(List.of(
+                new L2OrderBook.Line(new BigDecimal("30000.5"), new BigDecimal("0.25"), 2),
+                // does not fit a long unscaled
+                new L2OrderBook.Line(new BigDecimal("30001"), new BigDecimal("123456789012345678901234.5"), 1)));
+        orderBook.setBids(List.of(new L2OrderBook.Line(new BigDecimal("29999.00"), new BigDecimal("1"), 3)));
+
+        byte[] data = OrderBookCodec.encode(orderBook);
+        L2OrderBook decoded = OrderBookCodec.decodeL2OrderBook(data);
+
+        assertEquals(42, OrderBookCodec.peekSequence(data));
+        assertEquals(orderBook.getProductId(), decoded.getProductId());
+        assertEquals(orderBook.getSequence(), decoded.getSequence());
+        assertEquals(orderBook.getTime(), decoded.getTime());
+        assertEquals(orderBook.getAsks(), decoded.getAsks());
+        assertEquals(orderBook.getBids(), decoded.getBids());
+    }
+
+    @Test
+    void roundTripsL2OrderBookIncrement() {
+        L2OrderBookIncrement increment = new L2OrderBookIncrement();
+        increment.setProductId("ETH-USDT");
+        increment.setPrevSequence(10);
+        increment.setSequence(15);
+        increment.setTime(1700000000001L);
+        increment.getAsks().add(new L2OrderBook.Line(new BigDecimal("2000.1"), BigDecimal.ZERO, 0));
+        increment.getBids().add(new L2OrderBook.Line(new BigDecimal("1999.9"), new BigDecimal("4.5"), 2));
+
+        byte[] data = OrderBookCodec.encode(increment);
+        L2OrderBookIncrement decoded = OrderBookCodec.decodeL2OrderBookIncrement(data);
+
+        assertEquals(15, OrderBookCodec.peekSequence(data));
+        assertEquals(increment.getProductId(), decoded.getProductId());
+        assertEquals(increment.getPrevSequence(), decoded.getPrevSequence());
+        assertEquals(increment.getSequence(), decoded.getSequence());
+        assertEquals(increment.getTime(), decoded.getTime());
+        assertEquals(increment.getAsks(), decoded.getAsks());
+        assertEquals(increment.getBids(), decoded.getBids());
+    }
+
+    @Test
+    void roundTripsL3OrderBook() {
+        L3OrderBook orderBook = new L3OrderBook();
+        orderBook.setProductId("BTC-USDT");
+        orderBook.setSequence(7);
+        orderBook.setTradeId(3);
+        orderBook.setTime(1700000000002L);
+        orderBook.setAsks(List.of(line("order-1", "30000.5", "0.1")));
+        orderBook.setBids(List.of(line("order-2", "29999", "2"), line("order-3", "29998.25", "0.005")));
+
+        byte[] data = OrderBookCodec.encode(orderBook);
+        L3OrderBook decoded = OrderBookCodec.decodeL3OrderBook(data);
+
+        assertEquals(7, OrderBookCodec.peekSequence(data));
+        assertEquals(orderBook.getProductId(), decoded.getProductId());
+        assertEquals(orderBook.getSequence(), decoded.getSequence());
+        assertEquals(orderBook.getTradeId(), decoded.getTradeId());
+        assertEquals(orderBook.getTime(), decoded.getTime());
+        assertEquals(orderBook.getAsks(), decoded.getAsks());
+        assertEquals(orderBook.getBids(), decoded.getBids());
+    }
+
+    @Test
+    void rejectsAPayloadOfAnotherKind() {
+        L2OrderBookIncrement increment = new L2OrderBookIncrement();
+        increment.setProductId("BTC-USDT");
+        byte[] data = OrderBookCodec.encode(increment);
+
+        assertThrows(IOException.class, () -> OrderBookCodec.decodeL2OrderBook(data));
+    }
+
+    @Test
+    void roundTripsAnEmptyBook() {
+        L2OrderBook orderBook = new L2OrderBook();
+        orderBook.setProductId("BTC-USDT");
+        orderBook.setAsks(new ArrayList<>());
+        orderBook.setBids(new ArrayList<>());
+
+        L2OrderBook decoded = OrderBookCodec.decodeL2OrderBook(OrderBookCodec.encode(orderBook));
+
+        assertEquals(0, decoded.getAsks().size());
+        assertEquals(0, decoded.getBids().size());
+    }
+
+    private static L3OrderBook.Line line(String orderId, String price, String size) {
+        L3OrderBook.Line line = new L3OrderBook.Line();
+        line.add(orderId);
+        line.add(price);
+        line.add(size);
+        return line;
+    }
+}
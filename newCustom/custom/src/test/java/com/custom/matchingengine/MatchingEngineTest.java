@@ -0,0 +1,240 @@
+package com.custom.matchingengine;
+
+import com.custom.enums.OrderSide;
+import com.custom.enums.OrderStatus;
+import com.custom.enums.OrderType;
+import com.custom.matchingengine.command.BatchCancelOrderCommand;
+import com.custom.matchingengine.command.BatchPlaceOrderCommand;
+import com.custom.matchingengine.command.CancelOrderCommand;
+import com.custom.matchingengine.command.Command;
+import com.custom.matchingengine.command.PlaceOrderCommand;
+import com.custom.matchingengine.command.PutProductCommand;
+import com.custom.matchingengine.command.ReplaceOrderCommand;
+import com.custom.matchingengine.message.CommandEndMessage;
+import com.custom.matchingengine.message.Message;
+import com.custom.matchingengine.message.OrderMessage;
+import com.custom.matchingengine.message.OrderResult;
+import com.custom.matchingengine.message.TradeMessage;
+import com.custom.matchingengine.snapshot.EngineSnapshotManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MatchingEngineTest {
+    private static final String PRODUCT_ID = "BTC-USDT";
+    private final List<Message> messages = new ArrayList<>();
+    private MatchingEngine engine;
+    private long offset;
+
+    @BeforeEach
+    void startEngine() {
+        MessageSender messageSender = mock(MessageSender.class);
+        doAnswer(invocation -> messages.add(invocation.getArgument(0))).when(messageSender).send(any());
+        engine = new MatchingEngine(mock(EngineSnapshotManager.class), messageSender);
+
+        PutProductCommand command = new PutProductCommand();
+        command.setProductId(PRODUCT_ID);
+        command.setBaseCurrency("BTC");
+        command.setQuoteCurrency("USDT");
+        execute(command);
+    }
+
+    @Test
+    void shrinkingAnOrderKeepsItsPlaceInTheQueue() {
+        execute(place("sell-1", OrderSide.SELL, "100", "1"));
+        execute(place("sell-2", OrderSide.SELL, "100", "1"));
+
+        assertEquals(OrderStatus.OPEN, replaceOrder("sell-1", null, "0.5").getStatus());
+
+        List<Trade> trades = trades(execute(place("buy-1", OrderSide.BUY, "100", "0.5")));
+        assertEquals(1, trades.size());
+        assertEquals("sell-1", trades.get(0).getMakerOrderId());
+    }
+
+    @Test
+    void growingAnOrderMovesItToTheBackOfItsLevel() {
+        execute(place("sell-1", OrderSide.SELL, "100", "1"));
+        execute(place("sell-2", OrderSide.SELL, "100", "1"));
+
+        assertEquals(OrderStatus.OPEN, replaceOrder("sell-1", null, "2").getStatus());
+
+        List<Trade> trades = trades(execute(place("buy-1", OrderSide.BUY, "100", "1")));
+        assertEquals(1, trades.size());
+        assertEquals("sell-2", trades.get(0).getMakerOrderId());
+    }
+
+    @Test
+    void aRepriceThatCrossesTheBookMatches() {
+        execute(place("sell-1", OrderSide.SELL, "101", "1"));
+        execute(place("buy-1", OrderSide.BUY, "100", "1"));
+
+        List<Message> sent = execute(replace("buy-1", "101", "1"));
+
+        assertEquals(OrderStatus.FILLED, result(sent).getStatus());
+        List<Trade> trades = trades(sent);
+        assertEquals(1, trades.size());
+        assertEquals("sell-1", trades.get(0).getMakerOrderId());
+        assertDecimal("101", trades.get(0).getPrice());
+    }
+
+    @Test
+    void aPartiallyFilledBuyKeepsWhatWasFilled() {
+        execute(place("buy-1", OrderSide.BUY, "100", "2"));
+        execute(place("sell-1", OrderSide.SELL, "100", "0.5"));
+
+        List<Message> sent = execute(replace("buy-1", null, "3"));
+
+        assertEquals(OrderStatus.OPEN, result(sent).getStatus());
+        Order order = lastOrder(sent, "buy-1");
+        assertDecimal("3.5", order.getSize());
+        assertDecimal("3", order.getRemainingSize());
+        assertDecimal("350", order.getFunds());
+        assertDecimal("300", order.getRemainingFunds());
+    }
+
+    @Test
+    void aSizeOfZeroCancels() {
+        execute(place("sell-1", OrderSide.SELL, "100", "1"));
+
+        assertEquals(OrderStatus.CANCELLED, replaceOrder("sell-1", null, "0").getStatus());
+
+        assertTrue(trades(execute(place("buy-1", OrderSide.BUY, "100", "1"))).isEmpty());
+    }
+
+    @Test
+    void anUnknownOrderIsRejected() {
+        assertEquals(OrderStatus.REJECTED, replaceOrder("missing", null, "1").getStatus());
+    }
+
+    @Test
+    void aReplaceThatChangesNothingSendsNoOrderMessage() {
+        execute(place("sell-1", OrderSide.SELL, "100", "1"));
+
+        List<Message> sent = execute(replace("sell-1", "100", "1"));
+
+        assertEquals(OrderStatus.OPEN, result(sent).getStatus());
+        // only the command start and end
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void aBatchPlaceReportsEveryOrderInOrder() {
+        BatchPlaceOrderCommand command = new BatchPlaceOrderCommand();
+        command.getOrders().add(place("sell-1", OrderSide.SELL, "100", "1"));
+        command.getOrders().add(place("buy-1", OrderSide.BUY, "100", "1"));
+        PlaceOrderCommand unknownProduct = place("other-1", OrderSide.BUY, "100", "1");
+        unknownProduct.setProductId("ETH-USDT");
+        command.getOrders().add(unknownProduct);
+        command.getOrders().add(place("sell-2", OrderSide.SELL, "101", "1"));
+
+        List<OrderResult> results = results(execute(command));
+
+        assertResults(results, new String[]{"sell-1", "buy-1", "other-1", "sell-2"},
+                new OrderStatus[]{OrderStatus.OPEN, OrderStatus.FILLED, OrderStatus.REJECTED, OrderStatus.OPEN});
+    }
+
+    @Test
+    void aBatchCancelRejectsOrdersThatAreNoLongerOpen() {
+        execute(place("sell-1", OrderSide.SELL, "100", "1"));
+        execute(place("sell-2", OrderSide.SELL, "101", "1"));
+        execute(place("buy-1", OrderSide.BUY, "100", "1"));
+
+        BatchCancelOrderCommand command = new BatchCancelOrderCommand();
+        command.getOrders().add(cancel(PRODUCT_ID, "sell-1"));
+        command.getOrders().add(cancel(PRODUCT_ID, "sell-2"));
+        command.getOrders().add(cancel("ETH-USDT", "other-1"));
+        List<OrderResult> results = results(execute(command));
+
+        assertResults(results, new String[]{"sell-1", "sell-2", "other-1"},
+                new OrderStatus[]{OrderStatus.REJECTED, OrderStatus.CANCELLED, OrderStatus.REJECTED});
+    }
+
+    private List<Message> execute(Command command) {
+        messages.clear();
+        engine.executeCommand(command, offset++);
+        return new ArrayList<>(messages);
+    }
+
+    private OrderResult replaceOrder(String orderId, String price, String remainingSize) {
+        return result(execute(replace(orderId, price, remainingSize)));
+    }
+
+    private static ReplaceOrderCommand replace(String orderId, String price, String remainingSize) {
+        ReplaceOrderCommand command = new ReplaceOrderCommand();
+        command.setProductId(PRODUCT_ID);
+        command.setOrderId(orderId);
+        command.setPrice(price == null ? null : new BigDecimal(price));
+        command.setRemainingSize(new BigDecimal(remainingSize));
+        return command;
+    }
+
+    private static PlaceOrderCommand place(String orderId, OrderSide side, String price, String size) {
+        PlaceOrderCommand command = new PlaceOrderCommand();
+        command.setProductId(PRODUCT_ID);
+        command.setOrderId(orderId);
+        command.setUserId("user-" + side);
+        command.setOrderType(OrderType.LIMIT);
+        command.setOrderSide(side);
+        command.setPrice(new BigDecimal(price));
+        command.setSize(new BigDecimal(size));
+        command.setTime(new Date());
+        return command;
+    }
+
+    private static CancelOrderCommand cancel(String productId, String orderId) {
+        CancelOrderCommand command = new CancelOrderCommand();
+        command.setProductId(productId);
+        command.setOrderId(orderId);
+        return command;
+    }
+
+    private static OrderResult result(List<Message> messages) {
+        List<OrderResult> results = results(messages);
+        assertEquals(1, results.size());
+        return results.get(0);
+    }
+
+    private static List<OrderResult> results(List<Message> messages) {
+        return ((CommandEndMessage) messages.get(messages.size() - 1)).getResults();
+    }
+
+    private static void assertResults(List<OrderResult> results, String[] orderIds, OrderStatus[] statuses) {
+        assertEquals(orderIds.length, results.size());
+        for (int i = 0; i < orderIds.length; i++) {
+            assertEquals(orderIds[i], results.get(i).getOrderId(), "order at " + i);
+            assertEquals(statuses[i], results.get(i).getStatus(), "status at " + i);
+        }
+    }
+
+    private static List<Trade> trades(List<Message> messages) {
+        return messages.stream()
+                .filter(TradeMessage.class::isInstance)
+                .map(message -> ((TradeMessage) message).getTrade())
+                .collect(Collectors.toList());
+    }
+
+    private static Order lastOrder(List<Message> messages, String orderId) {
+        Order order = null;
+        for (Message message : messages) {
+            if (message instanceof OrderMessage orderMessage && orderMessage.getOrder().getId().equals(orderId)) {
+                order = orderMessage.getOrder();
+            }
+        }
+        return order;
+    }
+
+    private static void assertDecimal(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,105 @@
+package com.custom.middleware.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffsetCommitTrackerTest {
+    private static final TopicPartition PARTITION = new TopicPartition("engine-message", 0);
+
+    @Test
+    void commitsNothingWhileTheOldestBatchIsPending() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch first = tracker.begin(records(0, 9));
+        OffsetCommitTracker.Batch second = tracker.begin(records(10, 19));
+
+        second.complete(null);
+        assertTrue(tracker.pollCommittable().isEmpty());
+
+        first.complete(null);
+        assertEquals(Map.of(PARTITION, new OffsetAndMetadata(20)), tracker.pollCommittable());
+        assertTrue(tracker.pollCommittable().isEmpty());
+    }
+
+    @Test
+    void commitsUpToTheFirstPendingBatch() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch first = tracker.begin(records(0, 9));
+        tracker.begin(records(10, 19));
+        OffsetCommitTracker.Batch third = tracker.begin(records(20, 29));
+
+        first.complete(null);
+        third.complete(null);
+
+        assertEquals(Map.of(PARTITION, new OffsetAndMetadata(10)), tracker.pollCommittable());
+    }
+
+    @Test
+    void appendedPollsCommitWithTheirBatch() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch batch = tracker.begin(records(0, 9));
+        tracker.append(batch, records(10, 14));
+
+        batch.complete(null);
+
+        assertEquals(Map.of(PARTITION, new OffsetAndMetadata(15)), tracker.pollCommittable());
+    }
+
+    @Test
+    void onlyTheMostRecentPendingBatchCanBeExtended() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch first = tracker.begin(records(0, 9));
+        OffsetCommitTracker.Batch second = tracker.begin(records(10, 19));
+
+        assertThrows(IllegalStateException.class, () -> tracker.append(first, records(20, 29)));
+
+        second.complete(null);
+        assertThrows(IllegalStateException.class, () -> tracker.append(second, records(20, 29)));
+    }
+
+    @Test
+    void failsOnAFailedBatchWithoutCommittingPastIt() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch first = tracker.begin(records(0, 9));
+        OffsetCommitTracker.Batch second = tracker.begin(records(10, 19));
+
+        first.complete(new RuntimeException("write failed"));
+        second.complete(null);
+
+        assertThrows(IllegalStateException.class, tracker::pollCommittable);
+    }
+
+    @Test
+    void awaitsEveryBatchInFlight() throws InterruptedException {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(4);
+        OffsetCommitTracker.Batch first = tracker.begin(records(0, 9));
+        OffsetCommitTracker.Batch second = tracker.begin(records(10, 19));
+
+        Thread writer = new Thread(() -> {
+            second.complete(null);
+            first.complete(null);
+        });
+        writer.start();
+
+        assertEquals(Map.of(PARTITION, new OffsetAndMetadata(20)), tracker.awaitCommittable());
+        writer.join();
+    }
+
+    private static ConsumerRecords<String, String> records(long firstOffset, long lastOffset) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (long offset = firstOffset; offset <= lastOffset; offset++) {
+            records.add(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, null, "message"));
+        }
+        return new ConsumerRecords<>(Map.of(PARTITION, records));
+    }
+}